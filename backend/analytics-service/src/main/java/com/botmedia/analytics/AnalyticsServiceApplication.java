@@ -5,6 +5,7 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.netflix.eureka.EnableEurekaClient;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Analytics Service Application
@@ -12,6 +13,7 @@ import org.springframework.context.annotation.ComponentScan;
  */
 @SpringBootApplication
 @EnableEurekaClient
+@EnableScheduling
 @MapperScan("com.botmedia.analytics.repository")
 @ComponentScan(basePackages = {"com.botmedia.analytics", "com.botmedia.common"})
 public class AnalyticsServiceApplication {
@@ -0,0 +1,26 @@
+package com.botmedia.analytics.config;
+
+import com.botmedia.analytics.service.impl.TrafficFanout;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * Subscribes every instance to the traffic channel so the live dashboard counts views ingested anywhere
+ */
+@Configuration
+public class TrafficFanoutConfig {
+
+    public static final String TRAFFIC_CHANNEL = "analytics:traffic:views";
+
+    @Bean
+    public RedisMessageListenerContainer trafficListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                  TrafficFanout trafficFanout) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(trafficFanout, new ChannelTopic(TRAFFIC_CHANNEL));
+        return container;
+    }
+}
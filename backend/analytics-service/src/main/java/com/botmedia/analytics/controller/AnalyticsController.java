@@ -2,6 +2,7 @@ package com.botmedia.analytics.controller;
 
 import com.botmedia.analytics.dto.ArticleStatsVO;
 import com.botmedia.analytics.dto.DashboardStatsVO;
+import com.botmedia.analytics.dto.TrendingArticleVO;
 import com.botmedia.analytics.dto.ViewTrackRequest;
 import com.botmedia.analytics.entity.DailyStatistics;
 import com.botmedia.analytics.service.AnalyticsService;
@@ -10,9 +11,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -32,13 +42,32 @@ public class AnalyticsController {
     /**
      * Track an article view
      * @param request view tracking request
-     * @return success response
+     * @return 202 once queued, or 503 with Retry-After when ingestion is saturated
      */
     @PostMapping("/views")
-    public ApiResponse<Void> trackView(@Valid @RequestBody ViewTrackRequest request) {
-        log.info("Tracking view for article: {}", request.getArticleId());
-        analyticsService.trackView(request);
-        return ApiResponse.success(null);
+    public ResponseEntity<ApiResponse<Void>> trackView(@Valid @RequestBody ViewTrackRequest request) {
+        if (!analyticsService.trackView(request)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(ApiResponse.error(HttpStatus.SERVICE_UNAVAILABLE.value(), "View ingestion is saturated"));
+        }
+        return ResponseEntity.accepted().body(ApiResponse.success(null));
+    }
+
+    /**
+     * Track a batch of views, sent as a JSON array or NDJSON. Any content type is accepted so that
+     * navigator.sendBeacon can post a text/plain body; views without a user agent or IP address take the
+     * request's.
+     * @return 202 once queued, or 503 with Retry-After when ingestion is saturated
+     */
+    @PostMapping("/views/batch")
+    public ResponseEntity<ApiResponse<Void>> trackViews(HttpServletRequest request) throws IOException {
+        if (!analyticsService.trackViews(request.getInputStream(), request.getHeader(HttpHeaders.USER_AGENT), clientIp(request))) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(ApiResponse.error(HttpStatus.SERVICE_UNAVAILABLE.value(), "View ingestion is saturated"));
+        }
+        return ResponseEntity.accepted().body(ApiResponse.success(null));
     }
 
     /**
@@ -49,22 +78,40 @@ public class AnalyticsController {
     @GetMapping("/articles/top")
     public ApiResponse<List<ArticleStatsVO>> getTopArticles(
             @RequestParam(defaultValue = "10") int limit) {
-        log.info("Getting top {} articles", limit);
         List<ArticleStatsVO> topArticles = analyticsService.getTopArticles(limit);
         return ApiResponse.success(topArticles);
     }
 
+    /**
+     * Get trending articles, ranked by views decayed with a configurable half-life (default 6 hours)
+     * @param limit number of trending articles to return (default 10)
+     * @return list of trending articles
+     */
+    @GetMapping("/articles/trending")
+    public ApiResponse<List<TrendingArticleVO>> getTrendingArticles(
+            @RequestParam(defaultValue = "10") int limit) {
+        return ApiResponse.success(analyticsService.getTrendingArticles(limit));
+    }
+
     /**
      * Get dashboard statistics
      * @return dashboard statistics
      */
     @GetMapping("/dashboard")
     public ApiResponse<DashboardStatsVO> getDashboardStats() {
-        log.info("Getting dashboard statistics");
         DashboardStatsVO stats = analyticsService.getDashboardStats();
         return ApiResponse.success(stats);
     }
 
+    /**
+     * Stream live traffic as Server-Sent Events: a "snapshot" event, then a "delta" event every second
+     * @return event stream
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTraffic() {
+        return analyticsService.streamTraffic();
+    }
+
     /**
      * Get daily statistics for a date range
      * @param startDate start date (format: yyyy-MM-dd)
@@ -79,4 +126,62 @@ public class AnalyticsController {
         List<DailyStatistics> stats = analyticsService.getDailyStats(startDate, endDate);
         return ApiResponse.success(stats);
     }
+
+    /**
+     * Recompute daily statistics for a date range (admin)
+     * @param startDate start date (format: yyyy-MM-dd)
+     * @param endDate end date (format: yyyy-MM-dd)
+     * @return accepted response; the recompute runs in the background
+     */
+    @PostMapping("/reports/daily/recompute")
+    public ResponseEntity<ApiResponse<Void>> recomputeDailyReports(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        log.info("Recomputing daily reports from {} to {}", startDate, endDate);
+        analyticsService.recomputeDailyStats(startDate, endDate);
+        return ResponseEntity.accepted().body(ApiResponse.success("Recompute started", null));
+    }
+
+    /**
+     * Get estimated unique visitors for a date range
+     * @param startDate start date (format: yyyy-MM-dd)
+     * @param endDate end date (format: yyyy-MM-dd)
+     * @param articleId optional article to restrict to
+     * @return estimated number of distinct visitors
+     */
+    @GetMapping("/unique-visitors")
+    public ApiResponse<Long> getUniqueVisitors(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Long articleId) {
+        long visitors = analyticsService.countUniqueVisitors(startDate, endDate, articleId);
+        return ApiResponse.success(visitors);
+    }
+
+    /**
+     * Export raw views for a date range as NDJSON, including days moved to cold storage
+     * @param startDate start date (format: yyyy-MM-dd)
+     * @param endDate end date (format: yyyy-MM-dd)
+     */
+    @GetMapping("/views/export")
+    public void exportViews(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        analyticsService.exportViews(startDate, endDate, response.getOutputStream());
+    }
+
+    /**
+     * Original client address: the first X-Forwarded-For entry set by nginx and the gateway, else the peer
+     */
+    private static String clientIp(HttpServletRequest request) {
+        String forwarded = request.getHeader("X-Forwarded-For");
+        if (forwarded != null && !forwarded.isEmpty()) {
+            int comma = forwarded.indexOf(',');
+            return (comma < 0 ? forwarded : forwarded.substring(0, comma)).trim();
+        }
+        return request.getRemoteAddr();
+    }
 }
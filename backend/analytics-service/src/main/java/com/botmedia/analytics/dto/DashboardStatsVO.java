@@ -20,6 +20,11 @@ public class DashboardStatsVO {
      */
     private Long totalViews;
 
+    /**
+     * Today's views from bots and crawlers, which are not stored in article_view
+     */
+    private Long todayBotViews;
+
     /**
      * Total articles
      */
@@ -51,6 +56,14 @@ public class DashboardStatsVO {
         this.totalViews = totalViews;
     }
 
+    public Long getTodayBotViews() {
+        return todayBotViews;
+    }
+
+    public void setTodayBotViews(Long todayBotViews) {
+        this.todayBotViews = todayBotViews;
+    }
+
     public Long getTotalArticles() {
         return totalArticles;
     }
@@ -0,0 +1,43 @@
+package com.botmedia.analytics.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Minute View Count
+ * Views of one article within one minute, as aggregated from article_view
+ */
+public class MinuteViewCount {
+
+    private Long articleId;
+
+    /**
+     * Start of the minute
+     */
+    private LocalDateTime minute;
+
+    private Long views;
+
+    public Long getArticleId() {
+        return articleId;
+    }
+
+    public void setArticleId(Long articleId) {
+        this.articleId = articleId;
+    }
+
+    public LocalDateTime getMinute() {
+        return minute;
+    }
+
+    public void setMinute(LocalDateTime minute) {
+        this.minute = minute;
+    }
+
+    public Long getViews() {
+        return views;
+    }
+
+    public void setViews(Long views) {
+        this.views = views;
+    }
+}
@@ -0,0 +1,76 @@
+package com.botmedia.analytics.dto;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Traffic Delta VO
+ * Views since the previous event on the analytics stream
+ */
+public class TrafficDeltaVO {
+
+    /**
+     * When the delta was taken
+     */
+    private LocalDateTime timestamp;
+
+    /**
+     * Views since the previous event
+     */
+    private Long views;
+
+    /**
+     * Views since the previous event, by article ID
+     */
+    private Map<Long, Long> articleViews;
+
+    /**
+     * Views in the current minute so far
+     */
+    private Long currentMinuteViews;
+
+    /**
+     * Views today so far
+     */
+    private Long todayViews;
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(LocalDateTime timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public Long getViews() {
+        return views;
+    }
+
+    public void setViews(Long views) {
+        this.views = views;
+    }
+
+    public Map<Long, Long> getArticleViews() {
+        return articleViews;
+    }
+
+    public void setArticleViews(Map<Long, Long> articleViews) {
+        this.articleViews = articleViews;
+    }
+
+    public Long getCurrentMinuteViews() {
+        return currentMinuteViews;
+    }
+
+    public void setCurrentMinuteViews(Long currentMinuteViews) {
+        this.currentMinuteViews = currentMinuteViews;
+    }
+
+    public Long getTodayViews() {
+        return todayViews;
+    }
+
+    public void setTodayViews(Long todayViews) {
+        this.todayViews = todayViews;
+    }
+}
@@ -0,0 +1,63 @@
+package com.botmedia.analytics.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Traffic Snapshot VO
+ * Per-minute view totals sent when a client connects to the analytics stream
+ */
+public class TrafficSnapshotVO {
+
+    /**
+     * Start of the first minute in the series
+     */
+    private LocalDateTime startMinute;
+
+    /**
+     * Views per minute, oldest first; the last entry is the current minute
+     */
+    private List<Long> minuteViews;
+
+    /**
+     * Most viewed articles over the series
+     */
+    private List<ArticleStatsVO> topArticles;
+
+    /**
+     * Views today so far
+     */
+    private Long todayViews;
+
+    public LocalDateTime getStartMinute() {
+        return startMinute;
+    }
+
+    public void setStartMinute(LocalDateTime startMinute) {
+        this.startMinute = startMinute;
+    }
+
+    public List<Long> getMinuteViews() {
+        return minuteViews;
+    }
+
+    public void setMinuteViews(List<Long> minuteViews) {
+        this.minuteViews = minuteViews;
+    }
+
+    public List<ArticleStatsVO> getTopArticles() {
+        return topArticles;
+    }
+
+    public void setTopArticles(List<ArticleStatsVO> topArticles) {
+        this.topArticles = topArticles;
+    }
+
+    public Long getTodayViews() {
+        return todayViews;
+    }
+
+    public void setTodayViews(Long todayViews) {
+        this.todayViews = todayViews;
+    }
+}
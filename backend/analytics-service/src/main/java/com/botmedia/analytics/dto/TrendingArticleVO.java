@@ -0,0 +1,34 @@
+package com.botmedia.analytics.dto;
+
+/**
+ * Trending Article VO
+ * An article ranked by time-decayed views
+ */
+public class TrendingArticleVO {
+
+    /**
+     * Article ID
+     */
+    private Long articleId;
+
+    /**
+     * Views decayed to the current time: a view one half-life ago counts 0.5
+     */
+    private Double score;
+
+    public Long getArticleId() {
+        return articleId;
+    }
+
+    public void setArticleId(Long articleId) {
+        this.articleId = articleId;
+    }
+
+    public Double getScore() {
+        return score;
+    }
+
+    public void setScore(Double score) {
+        this.score = score;
+    }
+}
@@ -0,0 +1,52 @@
+package com.botmedia.analytics.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+
+import java.time.LocalDate;
+
+/**
+ * Article Daily Views Entity
+ * Views of one article on one day, rolled up alongside daily statistics
+ */
+@TableName("article_daily_views")
+public class ArticleDailyViews {
+
+    /**
+     * Date of the views
+     */
+    private LocalDate statDate;
+
+    /**
+     * Article ID
+     */
+    private Long articleId;
+
+    /**
+     * Views of the article on the day
+     */
+    private Long views;
+
+    public LocalDate getStatDate() {
+        return statDate;
+    }
+
+    public void setStatDate(LocalDate statDate) {
+        this.statDate = statDate;
+    }
+
+    public Long getArticleId() {
+        return articleId;
+    }
+
+    public void setArticleId(Long articleId) {
+        this.articleId = articleId;
+    }
+
+    public Long getViews() {
+        return views;
+    }
+
+    public void setViews(Long views) {
+        this.views = views;
+    }
+}
@@ -1,8 +1,16 @@
 package com.botmedia.analytics.repository;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.botmedia.analytics.dto.ArticleStatsVO;
+import com.botmedia.analytics.dto.MinuteViewCount;
+import com.botmedia.analytics.entity.ArticleDailyViews;
 import com.botmedia.analytics.entity.ArticleView;
+import com.botmedia.analytics.entity.DailyStatistics;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * Article View Mapper
@@ -10,4 +18,47 @@ import org.apache.ibatis.annotations.Mapper;
  */
 @Mapper
 public interface ArticleViewMapper extends BaseMapper<ArticleView> {
+
+    /**
+     * View count per article for views at or after {@code from}, aggregated in the database
+     */
+    List<ArticleStatsVO> countViewsByArticle(@Param("from") LocalDateTime from);
+
+    /**
+     * Views per day and article for views in [from, to)
+     */
+    List<ArticleDailyViews> countViewsByDayAndArticle(@Param("from") LocalDateTime from,
+                                                      @Param("to") LocalDateTime to);
+
+    /**
+     * Views per day for views in [from, to); days without views are absent
+     */
+    List<DailyStatistics> countViewsByDay(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * Views per article per minute for views in [from, to)
+     */
+    List<MinuteViewCount> countViewsByMinute(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * Insert views with a single multi-row INSERT
+     */
+    int insertBatch(@Param("views") List<ArticleView> views);
+
+    /**
+     * Up to {@code limit} views in [from, to) ordered by (viewedAt, id), starting after the given key when set
+     */
+    List<ArticleView> selectRange(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                  @Param("afterViewedAt") LocalDateTime afterViewedAt, @Param("afterId") Long afterId,
+                                  @Param("limit") int limit);
+
+    /**
+     * Time of the oldest view still in the table, or null if it is empty
+     */
+    LocalDateTime selectMinViewedAt();
+
+    /**
+     * Delete up to {@code limit} views older than {@code before}
+     */
+    int deleteBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
 }
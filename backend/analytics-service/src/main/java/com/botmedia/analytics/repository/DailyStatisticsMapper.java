@@ -1,8 +1,15 @@
 package com.botmedia.analytics.repository;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.botmedia.analytics.dto.ArticleStatsVO;
+import com.botmedia.analytics.entity.ArticleDailyViews;
 import com.botmedia.analytics.entity.DailyStatistics;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * Daily Statistics Mapper
@@ -10,4 +17,46 @@ import org.apache.ibatis.annotations.Mapper;
  */
 @Mapper
 public interface DailyStatisticsMapper extends BaseMapper<DailyStatistics> {
+
+    /**
+     * Create the named rollup watermark if it does not exist yet
+     */
+    int insertWatermarkIfAbsent(@Param("name") String name, @Param("watermark") LocalDateTime watermark);
+
+    /**
+     * Read the named watermark without locking it
+     */
+    LocalDateTime selectWatermark(@Param("name") String name);
+
+    /**
+     * Read the named watermark, locking its row until the transaction ends
+     */
+    LocalDateTime lockWatermark(@Param("name") String name);
+
+    int updateWatermark(@Param("name") String name, @Param("watermark") LocalDateTime watermark);
+
+    /**
+     * Add totalViews to each day's total, creating missing days; uniqueVisitors is replaced
+     */
+    int addViews(@Param("days") List<DailyStatistics> days);
+
+    /**
+     * Replace each day's totalViews and uniqueVisitors, creating missing days
+     */
+    int upsertTotals(@Param("days") List<DailyStatistics> days);
+
+    /**
+     * Add views to each (day, article) row, creating missing rows
+     */
+    int addArticleViews(@Param("rows") List<ArticleDailyViews> rows);
+
+    /**
+     * Remove the per-article rows of [first, last]
+     */
+    int deleteArticleViews(@Param("first") LocalDate first, @Param("last") LocalDate last);
+
+    /**
+     * Views per article summed over days in [from, to); either end may be null to leave it open
+     */
+    List<ArticleStatsVO> sumArticleViews(@Param("from") LocalDate from, @Param("to") LocalDate to);
 }
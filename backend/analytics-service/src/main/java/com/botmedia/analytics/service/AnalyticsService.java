@@ -2,9 +2,15 @@ package com.botmedia.analytics.service;
 
 import com.botmedia.analytics.dto.ArticleStatsVO;
 import com.botmedia.analytics.dto.DashboardStatsVO;
+import com.botmedia.analytics.dto.TrendingArticleVO;
 import com.botmedia.analytics.dto.ViewTrackRequest;
 import com.botmedia.analytics.entity.DailyStatistics;
 
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -15,10 +21,21 @@ import java.util.List;
 public interface AnalyticsService {
 
     /**
-     * Track an article view
+     * Track an article view; bot views are only counted, repeat views by the same visitor within the dedup window
+     * are dropped, and the rest are queued and written asynchronously in batches
      * @param request view tracking request
+     * @return false if the ingest buffer is full and the view was rejected
      */
-    void trackView(ViewTrackRequest request);
+    boolean trackView(ViewTrackRequest request);
+
+    /**
+     * Track a batch of views from one body, a JSON array or NDJSON, handed to the ingest buffer as a unit
+     * @param body request body
+     * @param userAgent user agent for views that do not carry one
+     * @param ipAddress IP address for views that do not carry one
+     * @return false if the ingest buffer cannot take the batch and it was rejected
+     */
+    boolean trackViews(InputStream body, String userAgent, String ipAddress) throws IOException;
 
     /**
      * Get top articles by view count
@@ -28,11 +45,24 @@ public interface AnalyticsService {
     List<ArticleStatsVO> getTopArticles(int limit);
 
     /**
-     * Get dashboard statistics
+     * Get articles ranked by time-decayed views
+     * @param limit number of articles to return
+     * @return list of trending articles, highest score first
+     */
+    List<TrendingArticleVO> getTrendingArticles(int limit);
+
+    /**
+     * Get dashboard statistics, served from in-memory counters
      * @return dashboard statistics
      */
     DashboardStatsVO getDashboardStats();
 
+    /**
+     * Subscribe to live traffic: a snapshot of the last hour, then per-second deltas
+     * @return server-sent event stream
+     */
+    SseEmitter streamTraffic();
+
     /**
      * Get daily statistics for a date range
      * @param startDate start date
@@ -40,4 +70,28 @@ public interface AnalyticsService {
      * @return list of daily statistics
      */
     List<DailyStatistics> getDailyStats(LocalDate startDate, LocalDate endDate);
+
+    /**
+     * Recompute daily statistics for a date range from article_view, in the background
+     * @param startDate start date (inclusive)
+     * @param endDate end date (inclusive)
+     */
+    void recomputeDailyStats(LocalDate startDate, LocalDate endDate);
+
+    /**
+     * Estimate distinct visitors over a date range by merging daily HyperLogLog sketches
+     * @param startDate start date (inclusive)
+     * @param endDate end date (inclusive)
+     * @param articleId article to count for, or null for the whole site
+     * @return estimated unique visitors
+     */
+    long countUniqueVisitors(LocalDate startDate, LocalDate endDate, Long articleId);
+
+    /**
+     * Write every view in a date range as NDJSON, reading archived days from cold storage
+     * @param startDate start date (inclusive)
+     * @param endDate end date (inclusive)
+     * @param out destination, one JSON view per line
+     */
+    void exportViews(LocalDate startDate, LocalDate endDate, OutputStream out) throws IOException;
 }
@@ -3,24 +3,37 @@ package com.botmedia.analytics.service.impl;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.botmedia.analytics.dto.ArticleStatsVO;
 import com.botmedia.analytics.dto.DashboardStatsVO;
+import com.botmedia.analytics.dto.TrendingArticleVO;
 import com.botmedia.analytics.dto.ViewTrackRequest;
 import com.botmedia.analytics.entity.ArticleView;
 import com.botmedia.analytics.entity.DailyStatistics;
 import com.botmedia.analytics.repository.ArticleViewMapper;
 import com.botmedia.analytics.repository.DailyStatisticsMapper;
 import com.botmedia.analytics.service.AnalyticsService;
+import com.botmedia.common.exception.BusinessException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -31,87 +44,243 @@ public class AnalyticsServiceImpl implements AnalyticsService {
 
     private static final Logger log = LoggerFactory.getLogger(AnalyticsServiceImpl.class);
 
+    private static final int MAX_UNIQUE_VISITOR_DAYS = 366;
+
+    private static final int RECENT_VIEWS = 10;
+
     @Autowired
     private ArticleViewMapper articleViewMapper;
 
     @Autowired
     private DailyStatisticsMapper dailyStatisticsMapper;
 
+    @Autowired
+    private TopArticlesTracker topArticlesTracker;
+
+    @Autowired
+    private TrendingTracker trendingTracker;
+
+    @Autowired
+    private ViewIngestPipeline viewIngestPipeline;
+
+    @Autowired
+    private ViewDeduplicator viewDeduplicator;
+
+    @Autowired
+    private UserAgentClassifier userAgentClassifier;
+
+    @Autowired
+    private BotViewCounter botViewCounter;
+
+    @Autowired
+    private UniqueVisitorCounter uniqueVisitorCounter;
+
+    @Autowired
+    private DailyRollupJob dailyRollupJob;
+
+    @Autowired
+    private TrafficRing trafficRing;
+
+    @Autowired
+    private TrafficStreamPublisher trafficStreamPublisher;
+
+    @Autowired
+    private ArticleViewStore articleViewStore;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Value("${analytics.ingest.max-batch-views:500}")
+    private int maxBatchViews;
+
+    @Override
+    public boolean trackView(ViewTrackRequest request) {
+        ArticleView view = toView(request, LocalDateTime.now());
+        if (!shouldStore(view)) {
+            return true;
+        }
+        if (!viewIngestPipeline.submit(view)) {
+            return false;
+        }
+        viewDeduplicator.record(view);
+        return true;
+    }
+
     @Override
-    public void trackView(ViewTrackRequest request) {
+    public boolean trackViews(InputStream body, String userAgent, String ipAddress) throws IOException {
+        List<ViewTrackRequest> requests = readViewBatch(body);
+        LocalDateTime now = LocalDateTime.now();
+        List<ArticleView> views = new ArrayList<>(requests.size());
+        List<ArticleView> bots = new ArrayList<>();
+        for (ViewTrackRequest request : requests) {
+            if (request.getUserAgent() == null) {
+                request.setUserAgent(userAgent);
+            }
+            if (request.getIpAddress() == null) {
+                request.setIpAddress(ipAddress);
+            }
+            ArticleView view = toView(request, now);
+            if (userAgentClassifier.isBot(view.getUserAgent())) {
+                bots.add(view);
+            } else {
+                views.add(view);
+            }
+        }
+
+        // Nothing is counted or marked as seen until the batch is accepted, so a rejected batch can be retried as is
+        views = viewDeduplicator.withoutDuplicates(views);
+        if (!viewIngestPipeline.submitAll(views)) {
+            return false;
+        }
+        viewDeduplicator.recordAll(views);
+        for (ArticleView bot : bots) {
+            botViewCounter.record(bot.getArticleId());
+        }
+        return true;
+    }
+
+    /**
+     * Parse a JSON array or a stream of JSON objects (NDJSON), validating each view
+     */
+    private List<ViewTrackRequest> readViewBatch(InputStream body) throws IOException {
+        List<ViewTrackRequest> requests = new ArrayList<>();
+        try (MappingIterator<ViewTrackRequest> items = objectMapper.readerFor(ViewTrackRequest.class).readValues(body)) {
+            while (items.hasNextValue()) {
+                if (requests.size() == maxBatchViews) {
+                    throw BusinessException.badRequest("A batch may hold at most " + maxBatchViews + " views");
+                }
+                ViewTrackRequest request = items.nextValue();
+                Set<ConstraintViolation<ViewTrackRequest>> violations = validator.validate(request);
+                if (!violations.isEmpty()) {
+                    String message = violations.stream().map(ConstraintViolation::getMessage).collect(Collectors.joining(", "));
+                    throw BusinessException.badRequest("View " + (requests.size() + 1) + ": " + message);
+                }
+                requests.add(request);
+            }
+        } catch (JsonProcessingException e) {
+            throw BusinessException.badRequest("Malformed view batch: " + e.getOriginalMessage());
+        }
+        return requests;
+    }
+
+    private static ArticleView toView(ViewTrackRequest request, LocalDateTime viewedAt) {
         ArticleView view = new ArticleView();
         view.setArticleId(request.getArticleId());
         view.setUserId(request.getUserId());
         view.setIpAddress(request.getIpAddress());
         view.setUserAgent(request.getUserAgent());
-        view.setViewedAt(LocalDateTime.now());
+        view.setViewedAt(viewedAt);
+        return view;
+    }
 
-        articleViewMapper.insert(view);
-        log.info("Tracked view for article: {}", request.getArticleId());
+    /**
+     * Bot views are only counted and repeat views dropped; returns true for views that go to article_view.
+     * The caller records the view with the deduplicator once the pipeline has accepted it
+     */
+    private boolean shouldStore(ArticleView view) {
+        if (userAgentClassifier.isBot(view.getUserAgent())) {
+            botViewCounter.record(view.getArticleId());
+            return false;
+        }
+        return !viewDeduplicator.isDuplicate(view);
     }
 
     @Override
     public List<ArticleStatsVO> getTopArticles(int limit) {
-        // Get all views
-        List<ArticleView> allViews = articleViewMapper.selectList(null);
-
-        // Group by article ID and count
-        Map<Long, Long> viewCounts = new HashMap<>();
-        for (ArticleView view : allViews) {
-            viewCounts.put(view.getArticleId(),
-                    viewCounts.getOrDefault(view.getArticleId(), 0L) + 1);
-        }
+        return topArticlesTracker.top(limit);
+    }
 
-        // Convert to ArticleStatsVO and sort by view count
-        return viewCounts.entrySet().stream()
-                .map(entry -> {
-                    ArticleStatsVO stats = new ArticleStatsVO();
-                    stats.setArticleId(entry.getKey());
-                    stats.setViewCount(entry.getValue());
-                    return stats;
-                })
-                .sorted((a, b) -> Long.compare(b.getViewCount(), a.getViewCount()))
-                .limit(limit)
-                .collect(Collectors.toList());
+    @Override
+    public List<TrendingArticleVO> getTrendingArticles(int limit) {
+        return trendingTracker.top(limit);
     }
 
     @Override
     public DashboardStatsVO getDashboardStats() {
         DashboardStatsVO stats = new DashboardStatsVO();
 
-        // Get today's views
-        LocalDateTime todayStart = LocalDateTime.of(LocalDate.now(), LocalTime.MIN);
-        LocalDateTime todayEnd = LocalDateTime.of(LocalDate.now(), LocalTime.MAX);
-
-        LambdaQueryWrapper<ArticleView> todayWrapper = new LambdaQueryWrapper<>();
-        todayWrapper.between(ArticleView::getViewedAt, todayStart, todayEnd);
-        Long todayViews = articleViewMapper.selectCount(todayWrapper);
-        stats.setTodayViews(todayViews);
-
-        // Get total views
-        Long totalViews = articleViewMapper.selectCount(null);
-        stats.setTotalViews(totalViews);
+        // Today's and all-time views come from the in-memory counters, not article_view
+        stats.setTodayViews(trafficRing.todayViews());
+        stats.setTotalViews(topArticlesTracker.totalViews());
+        stats.setTodayBotViews(botViewCounter.count(LocalDate.now()));
 
         // For total articles and users, we would need to call other services
         // For now, setting to 0 as placeholder
         stats.setTotalArticles(0L);
         stats.setTotalUsers(0L);
 
-        // Get recent views (last 10)
+        // Views from every instance land in article_view; the newest ids are a short backward scan of the primary key
         LambdaQueryWrapper<ArticleView> recentWrapper = new LambdaQueryWrapper<>();
-        recentWrapper.orderByDesc(ArticleView::getViewedAt).last("LIMIT 10");
-        List<ArticleView> recentViews = articleViewMapper.selectList(recentWrapper);
-        stats.setRecentViews(recentViews);
+        recentWrapper.orderByDesc(ArticleView::getId).last("LIMIT " + RECENT_VIEWS);
+        stats.setRecentViews(articleViewMapper.selectList(recentWrapper));
 
         return stats;
     }
 
+    @Override
+    public SseEmitter streamTraffic() {
+        return trafficStreamPublisher.subscribe();
+    }
+
     @Override
     public List<DailyStatistics> getDailyStats(LocalDate startDate, LocalDate endDate) {
         LambdaQueryWrapper<DailyStatistics> wrapper = new LambdaQueryWrapper<>();
         wrapper.between(DailyStatistics::getStatDate, startDate, endDate);
         wrapper.orderByAsc(DailyStatistics::getStatDate);
 
-        return dailyStatisticsMapper.selectList(wrapper);
+        List<DailyStatistics> stats = dailyStatisticsMapper.selectList(wrapper);
+        Map<LocalDate, Long> uniqueVisitors = uniqueVisitorCounter.countPerDay(
+                stats.stream().map(DailyStatistics::getStatDate).collect(Collectors.toList()));
+        for (DailyStatistics day : stats) {
+            Long visitors = uniqueVisitors.get(day.getStatDate());
+            if (visitors != null) {
+                day.setUniqueVisitors(visitors);
+            }
+        }
+        return stats;
+    }
+
+    @Override
+    public void recomputeDailyStats(LocalDate startDate, LocalDate endDate) {
+        if (startDate.isAfter(endDate)) {
+            throw BusinessException.badRequest("startDate must not be after endDate");
+        }
+        if (!dailyRollupJob.startRecompute(startDate, endDate)) {
+            throw BusinessException.badRequest("A recompute is already running");
+        }
+    }
+
+    @Override
+    public long countUniqueVisitors(LocalDate startDate, LocalDate endDate, Long articleId) {
+        if (startDate.isAfter(endDate)) {
+            throw BusinessException.badRequest("startDate must not be after endDate");
+        }
+        if (ChronoUnit.DAYS.between(startDate, endDate) >= MAX_UNIQUE_VISITOR_DAYS) {
+            throw BusinessException.badRequest("Date range must not exceed " + MAX_UNIQUE_VISITOR_DAYS + " days");
+        }
+        return uniqueVisitorCounter.count(startDate, endDate, articleId);
+    }
+
+    @Override
+    public void exportViews(LocalDate startDate, LocalDate endDate, OutputStream out) throws IOException {
+        if (startDate.isAfter(endDate)) {
+            throw BusinessException.badRequest("startDate must not be after endDate");
+        }
+        try {
+            articleViewStore.scan(startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay(), view -> {
+                try {
+                    out.write(objectMapper.writeValueAsBytes(view));
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
     }
 }
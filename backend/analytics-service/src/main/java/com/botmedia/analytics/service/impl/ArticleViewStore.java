@@ -0,0 +1,121 @@
+package com.botmedia.analytics.service.impl;
+
+import com.botmedia.analytics.entity.ArticleDailyViews;
+import com.botmedia.analytics.entity.ArticleView;
+import com.botmedia.analytics.entity.DailyStatistics;
+import com.botmedia.analytics.repository.ArticleViewMapper;
+import com.botmedia.analytics.storage.ColdViewStore;
+import com.botmedia.analytics.util.LongLongHashMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Article View Store
+ * Reads article views across both tiers: days before the cold boundary from archived segments, everything
+ * from the boundary on from article_view. Callers that need whole-history or arbitrary-range views go through
+ * here rather than the mapper.
+ */
+@Component
+public class ArticleViewStore {
+
+    @Autowired
+    private ArticleViewMapper articleViewMapper;
+
+    @Autowired
+    private ColdViewStore coldViewStore;
+
+    @Value("${analytics.cold-storage.batch-size:5000}")
+    private int batchSize;
+
+    /**
+     * Views per day and article for views in [from, to)
+     */
+    public List<ArticleDailyViews> countViewsByDayAndArticle(LocalDateTime from, LocalDateTime to) {
+        LocalDate boundaryDay = coldViewStore.getBoundary();
+        LocalDateTime boundary = boundaryDay != null ? boundaryDay.atStartOfDay() : null;
+        if (boundary == null || !from.isBefore(boundary)) {
+            return articleViewMapper.countViewsByDayAndArticle(from, to);
+        }
+
+        Map<LocalDate, LongLongHashMap> counts = new TreeMap<>();
+        coldViewStore.countByDayAndArticle(boundaryDay, from, to.isBefore(boundary) ? to : boundary, counts);
+        List<ArticleDailyViews> rows = new ArrayList<>();
+        counts.forEach((date, articles) -> articles.forEach((articleId, views) -> {
+            ArticleDailyViews row = new ArticleDailyViews();
+            row.setStatDate(date);
+            row.setArticleId(articleId);
+            row.setViews(views);
+            rows.add(row);
+        }));
+        if (to.isAfter(boundary)) {
+            rows.addAll(articleViewMapper.countViewsByDayAndArticle(boundary, to));
+        }
+        return rows;
+    }
+
+    /**
+     * Views per day for views in [from, to), ordered by day; days without views are absent
+     */
+    public List<DailyStatistics> countViewsByDay(LocalDateTime from, LocalDateTime to) {
+        LocalDate boundaryDay = coldViewStore.getBoundary();
+        LocalDateTime boundary = boundaryDay != null ? boundaryDay.atStartOfDay() : null;
+        if (boundary == null || !from.isBefore(boundary)) {
+            return articleViewMapper.countViewsByDay(from, to);
+        }
+
+        Map<LocalDate, Long> counts = new TreeMap<>();
+        coldViewStore.countByDay(boundaryDay, from, to.isBefore(boundary) ? to : boundary, counts);
+        if (to.isAfter(boundary)) {
+            for (DailyStatistics day : articleViewMapper.countViewsByDay(boundary, to)) {
+                counts.merge(day.getStatDate(), day.getTotalViews(), Long::sum);
+            }
+        }
+
+        List<DailyStatistics> days = new ArrayList<>(counts.size());
+        counts.forEach((date, views) -> {
+            DailyStatistics day = new DailyStatistics();
+            day.setStatDate(date);
+            day.setTotalViews(views);
+            days.add(day);
+        });
+        return days;
+    }
+
+    /**
+     * Every view in [from, to), in (viewedAt, id) order; MySQL is read in keyset-paginated batches
+     */
+    public void scan(LocalDateTime from, LocalDateTime to, Consumer<ArticleView> consumer) {
+        LocalDate boundaryDay = coldViewStore.getBoundary();
+        LocalDateTime boundary = boundaryDay != null ? boundaryDay.atStartOfDay() : null;
+        LocalDateTime hotFrom = from;
+        if (boundary != null && from.isBefore(boundary)) {
+            coldViewStore.scan(boundaryDay, from, to.isBefore(boundary) ? to : boundary, consumer);
+            hotFrom = boundary;
+        }
+        if (!hotFrom.isBefore(to)) {
+            return;
+        }
+
+        LocalDateTime afterViewedAt = null;
+        Long afterId = null;
+        List<ArticleView> page;
+        do {
+            page = articleViewMapper.selectRange(hotFrom, to, afterViewedAt, afterId, batchSize);
+            page.forEach(consumer);
+            if (!page.isEmpty()) {
+                ArticleView tail = page.get(page.size() - 1);
+                afterViewedAt = tail.getViewedAt();
+                afterId = tail.getId();
+            }
+        } while (page.size() == batchSize);
+    }
+}
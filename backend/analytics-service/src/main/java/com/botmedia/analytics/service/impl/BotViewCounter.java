@@ -0,0 +1,122 @@
+package com.botmedia.analytics.service.impl;
+
+import com.botmedia.analytics.util.LongLongHashMap;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Bot View Counter
+ * Counts views classified as bots instead of storing them in article_view. Hits are summed per article in memory
+ * and added to a per-day Redis hash ({@code analytics:bots:{yyyyMMdd}}, one field per article plus "total") on
+ * a short interval, so a crawler burst costs one HINCRBY per article per flush rather than a row per hit.
+ */
+@Component
+public class BotViewCounter {
+
+    private static final Logger log = LoggerFactory.getLogger(BotViewCounter.class);
+
+    private static final String KEY_PREFIX = "analytics:bots:";
+    private static final String TOTAL_FIELD = "total";
+    private static final DateTimeFormatter DAY = DateTimeFormatter.BASIC_ISO_DATE;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${analytics.bots.retention-days:30}")
+    private long retentionDays;
+
+    private Counter botViews;
+    private LocalDate pendingDay = LocalDate.now();
+    private LongLongHashMap pending = new LongLongHashMap();
+
+    @PostConstruct
+    public void init() {
+        botViews = Counter.builder("analytics.ingest.bots").register(meterRegistry);
+    }
+
+    public void record(long articleId) {
+        botViews.increment();
+        LocalDate today = LocalDate.now();
+        LongLongHashMap previous = null;
+        LocalDate previousDay = null;
+        synchronized (this) {
+            if (!today.equals(pendingDay)) {
+                previous = pending;
+                previousDay = pendingDay;
+                pending = new LongLongHashMap();
+                pendingDay = today;
+            }
+            pending.addTo(articleId, 1);
+        }
+        if (previous != null) {
+            write(previousDay, previous);
+        }
+    }
+
+    /**
+     * Bot views recorded by all instances on a day; pending hits of this instance show up after the next flush
+     */
+    public long count(LocalDate day) {
+        try {
+            Object total = redisTemplate.opsForHash().get(KEY_PREFIX + day.format(DAY), TOTAL_FIELD);
+            return total != null ? Long.parseLong(total.toString()) : 0L;
+        } catch (Exception e) {
+            log.warn("Failed to read bot views for {}: {}", day, e.getMessage());
+            return 0L;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.bots.flush-interval-ms:5000}")
+    @PreDestroy
+    public void flush() {
+        LongLongHashMap counts;
+        LocalDate day;
+        synchronized (this) {
+            if (pending.size() == 0) {
+                return;
+            }
+            counts = pending;
+            day = pendingDay;
+            pending = new LongLongHashMap();
+        }
+        write(day, counts);
+    }
+
+    private void write(LocalDate day, LongLongHashMap counts) {
+        String key = KEY_PREFIX + day.format(DAY);
+        long ttlSeconds = Duration.ofDays(retentionDays).getSeconds();
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection redis = (StringRedisConnection) connection;
+                long[] total = {0};
+                counts.forEach((articleId, views) -> {
+                    redis.hIncrBy(key, Long.toString(articleId), views);
+                    total[0] += views;
+                });
+                redis.hIncrBy(key, TOTAL_FIELD, total[0]);
+                redis.expire(key, ttlSeconds);
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Failed to record {} bot-viewed articles for {}: {}", counts.size(), day, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.botmedia.analytics.service.impl;
+
+import com.botmedia.analytics.entity.ArticleDailyViews;
+import com.botmedia.analytics.entity.DailyStatistics;
+import com.botmedia.analytics.repository.ArticleViewMapper;
+import com.botmedia.analytics.repository.DailyStatisticsMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Daily Rollup Job
+ * Keeps daily_statistics, and article_daily_views with the same views per article, up to date so reports never
+ * read article_view.
+ * The incremental pass adds the views in [watermark, now - lag) to their days and advances the watermark in
+ * the same transaction, with the watermark row locked, so each view is counted exactly once even with several
+ * instances running the job. A recompute replaces whole days with fresh totals. Days that ended before the
+ * watermark no longer receive incremental views, so they are rewritten without the lock, split by date range
+ * across a fork-join pool with each chunk committed on its own. Only the day the watermark falls in is shared
+ * with the incremental pass; it is rewritten last, together with any day the watermark has since moved past, in a
+ * short transaction that holds the watermark lock and counts views below the watermark, so a long backfill never
+ * blocks the scheduled rollup.
+ */
+@Component
+public class DailyRollupJob {
+
+    private static final Logger log = LoggerFactory.getLogger(DailyRollupJob.class);
+
+    static final String WATERMARK = "daily_statistics";
+
+    private static final int ARTICLE_ROWS_PER_STATEMENT = 1000;
+
+    @Autowired
+    private ArticleViewMapper articleViewMapper;
+
+    @Autowired
+    private ArticleViewStore articleViewStore;
+
+    @Autowired
+    private DailyStatisticsMapper dailyStatisticsMapper;
+
+    @Autowired
+    private UniqueVisitorCounter uniqueVisitorCounter;
+
+    @Autowired
+    private TopArticlesTracker topArticlesTracker;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${analytics.rollup.lag-seconds:120}")
+    private long lagSeconds;
+
+    @Value("${analytics.rollup.max-window-minutes:60}")
+    private long maxWindowMinutes;
+
+    @Value("${analytics.rollup.backfill-parallelism:4}")
+    private int backfillParallelism;
+
+    @Value("${analytics.rollup.backfill-chunk-days:7}")
+    private int backfillChunkDays;
+
+    private final AtomicBoolean recomputing = new AtomicBoolean();
+    private final ExecutorService recomputeExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "daily-rollup-recompute");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ForkJoinPool backfillPool;
+
+    @PostConstruct
+    public void init() {
+        backfillPool = new ForkJoinPool(backfillParallelism);
+    }
+
+    @PreDestroy
+    public void close() {
+        recomputeExecutor.shutdownNow();
+        backfillPool.shutdownNow();
+    }
+
+    /**
+     * Roll up views that arrived since the last run, in windows of at most max-window-minutes
+     */
+    @Scheduled(fixedDelayString = "${analytics.rollup.interval-ms:60000}")
+    public void rollUp() {
+        // New deployments start counting from today; earlier days are filled in by a recompute
+        dailyStatisticsMapper.insertWatermarkIfAbsent(WATERMARK, LocalDate.now().atStartOfDay());
+
+        boolean more = true;
+        while (more) {
+            Boolean advanced = transactionTemplate.execute(status -> rollUpWindow());
+            more = Boolean.TRUE.equals(advanced);
+        }
+    }
+
+    /**
+     * Start recomputing [startDate, endDate] in the background
+     * @return false if a recompute is already running
+     */
+    public boolean startRecompute(LocalDate startDate, LocalDate endDate) {
+        if (!recomputing.compareAndSet(false, true)) {
+            return false;
+        }
+        recomputeExecutor.submit(() -> {
+            try {
+                recompute(startDate, endDate);
+            } catch (Exception e) {
+                log.error("Daily statistics recompute {}..{} failed: {}", startDate, endDate, e.getMessage());
+            } finally {
+                recomputing.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Add one window of views; returns true if there may be more to roll up
+     */
+    private boolean rollUpWindow() {
+        LocalDateTime from = dailyStatisticsMapper.lockWatermark(WATERMARK);
+        LocalDateTime limit = LocalDateTime.now().minusSeconds(lagSeconds).truncatedTo(ChronoUnit.SECONDS);
+        if (from == null || !from.isBefore(limit)) {
+            return false;
+        }
+        LocalDateTime to = from.plusMinutes(maxWindowMinutes);
+        boolean more = to.isBefore(limit);
+        if (!more) {
+            to = limit;
+        }
+
+        List<DailyStatistics> days = articleViewMapper.countViewsByDay(from, to);
+        if (!days.isEmpty()) {
+            withUniqueVisitors(days);
+            dailyStatisticsMapper.addViews(days);
+            addArticleViews(articleViewMapper.countViewsByDayAndArticle(from, to));
+        }
+        dailyStatisticsMapper.updateWatermark(WATERMARK, to);
+        return more;
+    }
+
+    private void recompute(LocalDate startDate, LocalDate endDate) {
+        long start = System.currentTimeMillis();
+        dailyStatisticsMapper.insertWatermarkIfAbsent(WATERMARK, LocalDate.now().atStartOfDay());
+        LocalDateTime watermark = dailyStatisticsMapper.selectWatermark(WATERMARK);
+
+        // The watermark only moves forward, so days before its current day stay closed while they are rewritten
+        LocalDate openDay = watermark.toLocalDate();
+        LocalDate lastClosed = endDate.isBefore(openDay) ? endDate : openDay.minusDays(1);
+        if (!startDate.isAfter(lastClosed)) {
+            backfillPool.invoke(new RecomputeTask(startDate, lastClosed));
+        }
+        if (!openDay.isAfter(endDate)) {
+            LocalDate first = openDay.isBefore(startDate) ? startDate : openDay;
+            transactionTemplate.executeWithoutResult(status -> {
+                // The watermark may have moved on during the backfill; take every day up to its current one
+                LocalDateTime locked = dailyStatisticsMapper.lockWatermark(WATERMARK);
+                LocalDate last = endDate.isBefore(locked.toLocalDate()) ? endDate : locked.toLocalDate();
+                if (first.isAfter(last)) {
+                    return;
+                }
+                LocalDateTime lastEnd = last.plusDays(1).atStartOfDay();
+                rewriteDays(first, last, locked.isBefore(lastEnd) ? locked : lastEnd);
+            });
+        }
+        topArticlesTracker.invalidateClosedDays();
+        log.info("Recomputed daily statistics {}..{} in {} ms", startDate, endDate, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Replace the totals of [first, last] with the views counted before {@code to}
+     */
+    private void rewriteDays(LocalDate first, LocalDate last, LocalDateTime to) {
+        Map<LocalDate, DailyStatistics> counted = new HashMap<>();
+        for (DailyStatistics day : articleViewStore.countViewsByDay(first.atStartOfDay(), to)) {
+            counted.put(day.getStatDate(), day);
+        }
+
+        List<DailyStatistics> totals = new ArrayList<>();
+        for (LocalDate date = first; !date.isAfter(last); date = date.plusDays(1)) {
+            DailyStatistics day = counted.get(date);
+            if (day == null) {
+                day = new DailyStatistics();
+                day.setStatDate(date);
+                day.setTotalViews(0L);
+            }
+            totals.add(day);
+        }
+        withUniqueVisitors(totals);
+        List<ArticleDailyViews> articles = articleViewStore.countViewsByDayAndArticle(first.atStartOfDay(), to);
+        transactionTemplate.executeWithoutResult(status -> {
+            dailyStatisticsMapper.upsertTotals(totals);
+            dailyStatisticsMapper.deleteArticleViews(first, last);
+            addArticleViews(articles);
+        });
+    }
+
+    private void addArticleViews(List<ArticleDailyViews> rows) {
+        for (int i = 0; i < rows.size(); i += ARTICLE_ROWS_PER_STATEMENT) {
+            dailyStatisticsMapper.addArticleViews(rows.subList(i, Math.min(rows.size(), i + ARTICLE_ROWS_PER_STATEMENT)));
+        }
+    }
+
+    private void withUniqueVisitors(List<DailyStatistics> days) {
+        List<LocalDate> dates = new ArrayList<>(days.size());
+        for (DailyStatistics day : days) {
+            dates.add(day.getStatDate());
+        }
+        Map<LocalDate, Long> visitors = uniqueVisitorCounter.countPerDay(dates);
+        for (DailyStatistics day : days) {
+            day.setUniqueVisitors(visitors.getOrDefault(day.getStatDate(), 0L));
+        }
+    }
+
+    /**
+     * Rewrites the closed days of [first, last], splitting the range until it is at most backfill-chunk-days long.
+     * Runs on pool threads outside any transaction, so each chunk commits on its own.
+     */
+    private final class RecomputeTask extends RecursiveAction {
+
+        private final LocalDate first;
+        private final LocalDate last;
+
+        private RecomputeTask(LocalDate first, LocalDate last) {
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute() {
+            long days = ChronoUnit.DAYS.between(first, last) + 1;
+            if (days > backfillChunkDays) {
+                LocalDate mid = first.plusDays(days / 2 - 1);
+                invokeAll(new RecomputeTask(first, mid), new RecomputeTask(mid.plusDays(1), last));
+                return;
+            }
+            rewriteDays(first, last, last.plusDays(1).atStartOfDay());
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.botmedia.analytics.service.impl;
+
+import com.botmedia.analytics.dto.ArticleStatsVO;
+import com.botmedia.analytics.repository.ArticleViewMapper;
+import com.botmedia.analytics.repository.DailyStatisticsMapper;
+import com.botmedia.analytics.util.LongLongHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Top Articles Tracker
+ * Incremental top-K over all-time article view counts. Counts live in a primitive long-to-long map and the
+ * current top {@code capacity} articles in an indexed min-heap, so a view costs O(log K) and a top-N read
+ * copies at most K entries.
+ * <p>
+ * Counts are the days before the rollup watermark's day, summed from article_daily_views once at startup and
+ * topped up day by day as the watermark moves on, plus the open part: the watermark's day from
+ * article_daily_views and the views not rolled up yet from article_view. Views ingested here are added as they
+ * are written; the open part is re-read every reconcile interval, which also folds in views ingested by other
+ * instances, and never covers more than a day. Increments that arrive while it is being read are replayed onto
+ * the new counts, so none are lost; those for views the read already saw are counted twice until the next one.
+ */
+@Component
+public class TopArticlesTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(TopArticlesTracker.class);
+
+    @Autowired
+    private ArticleViewMapper articleViewMapper;
+
+    @Autowired
+    private DailyStatisticsMapper dailyStatisticsMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${analytics.top-articles.capacity:100}")
+    private int capacity;
+
+    private TransactionTemplate snapshot;
+    private State state;
+
+    /**
+     * Views of days before {@link #closedBefore}, which no longer change
+     */
+    private LongLongHashMap closed;
+    private LocalDate closedBefore;
+
+    /**
+     * Increments since the running reconcile started, or null when none is running
+     */
+    private LongLongHashMap pending;
+
+    @PostConstruct
+    public void init() {
+        state = new State(capacity, 16);
+        // One consistent snapshot, so the watermark and the rolled-up views it covers are read together
+        snapshot = new TransactionTemplate(transactionManager);
+        snapshot.setReadOnly(true);
+        snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        try {
+            reconcile();
+        } catch (Exception e) {
+            log.error("Failed to load top articles, counting from empty until the next reconcile: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Re-read the open part of the counts, first moving days the watermark has passed into the closed part
+     */
+    @Scheduled(initialDelayString = "${analytics.top-articles.reconcile-interval-ms:60000}",
+            fixedDelayString = "${analytics.top-articles.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        long start = System.currentTimeMillis();
+        synchronized (this) {
+            pending = new LongLongHashMap();
+        }
+        Counts counts;
+        try {
+            dailyStatisticsMapper.insertWatermarkIfAbsent(DailyRollupJob.WATERMARK, LocalDate.now().atStartOfDay());
+            counts = snapshot.execute(status -> readCounts());
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pending = null;
+            }
+            throw e;
+        }
+
+        State rebuilt = new State(capacity, counts.closed.size() + counts.open.size());
+        counts.closed.forEach(rebuilt::increment);
+        counts.open.forEach(rebuilt::increment);
+        synchronized (this) {
+            pending.forEach(rebuilt::increment);
+            pending = null;
+            state = rebuilt;
+            closed = counts.closed;
+            closedBefore = counts.closedBefore;
+        }
+        log.debug("Reconciled top articles ({} articles, {} open) in {} ms",
+                rebuilt.counts.size(), counts.open.size(), System.currentTimeMillis() - start);
+    }
+
+    private Counts readCounts() {
+        LocalDateTime watermark = dailyStatisticsMapper.selectWatermark(DailyRollupJob.WATERMARK);
+        LocalDate openDay = watermark.toLocalDate();
+
+        LongLongHashMap closedCounts;
+        LocalDate previous;
+        synchronized (this) {
+            closedCounts = closed;
+            previous = closedBefore;
+        }
+        if (closedCounts == null || previous.isAfter(openDay)) {
+            // First load, after a recompute, or the watermark went back: sum every closed day
+            closedCounts = sum(dailyStatisticsMapper.sumArticleViews(null, openDay), new LongLongHashMap());
+        } else if (previous.isBefore(openDay)) {
+            closedCounts = sum(dailyStatisticsMapper.sumArticleViews(previous, openDay), copy(closedCounts));
+        }
+
+        LongLongHashMap open = sum(dailyStatisticsMapper.sumArticleViews(openDay, null), new LongLongHashMap());
+        sum(articleViewMapper.countViewsByArticle(watermark), open);
+        return new Counts(closedCounts, openDay, open);
+    }
+
+    private static LongLongHashMap sum(List<ArticleStatsVO> rows, LongLongHashMap counts) {
+        for (ArticleStatsVO row : rows) {
+            counts.addTo(row.getArticleId(), row.getViewCount());
+        }
+        return counts;
+    }
+
+    private static LongLongHashMap copy(LongLongHashMap counts) {
+        LongLongHashMap copy = new LongLongHashMap(counts.size());
+        counts.forEach(copy::addTo);
+        return copy;
+    }
+
+    /**
+     * Re-sum the closed days on the next reconcile, after they have been recomputed
+     */
+    public synchronized void invalidateClosedDays() {
+        closed = null;
+    }
+
+    public synchronized void increment(long articleId, long delta) {
+        state.increment(articleId, delta);
+        if (pending != null) {
+            pending.addTo(articleId, delta);
+        }
+    }
+
+    /**
+     * All-time views over all articles
+     */
+    public synchronized long totalViews() {
+        return state.total;
+    }
+
+    /**
+     * Most viewed articles, highest first; at most {@code capacity} are tracked
+     */
+    public List<ArticleStatsVO> top(int limit) {
+        long[] ids;
+        long[] counts;
+        synchronized (this) {
+            ids = state.copyIds();
+            counts = state.copyCounts();
+        }
+
+        Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> counts[a] != counts[b]
+                ? Long.compare(counts[b], counts[a]) : Long.compare(ids[a], ids[b]));
+
+        int n = Math.min(Math.max(limit, 0), order.length);
+        List<ArticleStatsVO> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            ArticleStatsVO stats = new ArticleStatsVO();
+            stats.setArticleId(ids[order[i]]);
+            stats.setViewCount(counts[order[i]]);
+            result.add(stats);
+        }
+        return result;
+    }
+
+    private static final class Counts {
+
+        private final LongLongHashMap closed;
+        private final LocalDate closedBefore;
+        private final LongLongHashMap open;
+
+        private Counts(LongLongHashMap closed, LocalDate closedBefore, LongLongHashMap open) {
+            this.closed = closed;
+            this.closedBefore = closedBefore;
+            this.open = open;
+        }
+    }
+
+    /**
+     * Counts plus a min-heap of the top articles. Counts only grow, so every article outside the heap
+     * has a count no larger than the heap minimum.
+     */
+    private static final class State {
+
+        private final LongLongHashMap counts;
+        private final LongLongHashMap positions;
+        private final long[] heapIds;
+        private final long[] heapCounts;
+        private int heapSize;
+        private long total;
+
+        private State(int capacity, int expectedArticles) {
+            this.counts = new LongLongHashMap(Math.max(16, expectedArticles));
+            this.positions = new LongLongHashMap(capacity);
+            this.heapIds = new long[capacity];
+            this.heapCounts = new long[capacity];
+        }
+
+        private void increment(long articleId, long delta) {
+            long count = counts.addTo(articleId, delta);
+            total += delta;
+            int pos = (int) positions.get(articleId, -1L);
+            if (pos >= 0) {
+                heapCounts[pos] = count;
+                siftDown(pos);
+            } else if (heapSize < heapIds.length) {
+                heapIds[heapSize] = articleId;
+                heapCounts[heapSize] = count;
+                positions.put(articleId, heapSize);
+                siftUp(heapSize++);
+            } else if (heapSize > 0 && count > heapCounts[0]) {
+                positions.remove(heapIds[0]);
+                heapIds[0] = articleId;
+                heapCounts[0] = count;
+                positions.put(articleId, 0);
+                siftDown(0);
+            }
+        }
+
+        private long[] copyIds() {
+            return Arrays.copyOf(heapIds, heapSize);
+        }
+
+        private long[] copyCounts() {
+            return Arrays.copyOf(heapCounts, heapSize);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heapCounts[parent] <= heapCounts[i]) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= heapSize) {
+                    return;
+                }
+                int smallest = left + 1 < heapSize && heapCounts[left + 1] < heapCounts[left] ? left + 1 : left;
+                if (heapCounts[i] <= heapCounts[smallest]) {
+                    return;
+                }
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            long id = heapIds[a];
+            long count = heapCounts[a];
+            heapIds[a] = heapIds[b];
+            heapCounts[a] = heapCounts[b];
+            heapIds[b] = id;
+            heapCounts[b] = count;
+            positions.put(heapIds[a], a);
+            positions.put(heapIds[b], b);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.botmedia.analytics.service.impl;
+
+import com.botmedia.analytics.config.TrafficFanoutConfig;
+import com.botmedia.analytics.util.LongLongHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Traffic Fanout
+ * Shares live per-minute view counts between instances, so every instance's traffic ring and stream deltas
+ * cover views ingested anywhere rather than only its own. On every stream tick each instance publishes the
+ * counts it persisted since the last publish as {@code <instance>\n<minute>:<article>:<views>,...}, and applies
+ * the counts other instances publish. A message lost in transit only affects minutes until they are reconciled
+ * from article_view.
+ */
+@Component
+public class TrafficFanout implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(TrafficFanout.class);
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    @Autowired
+    private TrafficRing trafficRing;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    /**
+     * Called on the traffic stream's tick, right before it takes the delta
+     */
+    public void publish() {
+        Map<Long, LongLongHashMap> counts = trafficRing.takeOutgoing();
+        if (counts.isEmpty()) {
+            return;
+        }
+        StringBuilder message = new StringBuilder(instanceId).append('\n');
+        counts.forEach((minute, articleViews) -> articleViews.forEach((articleId, views) ->
+                message.append(minute).append(':').append(articleId).append(':').append(views).append(',')));
+        message.setLength(message.length() - 1);
+        try {
+            redisTemplate.convertAndSend(TrafficFanoutConfig.TRAFFIC_CHANNEL, message.toString());
+        } catch (Exception e) {
+            log.warn("Failed to publish traffic counts: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int newline = body.indexOf('\n');
+        if (newline < 0 || body.substring(0, newline).equals(instanceId)) {
+            return;
+        }
+        try {
+            for (String entry : body.substring(newline + 1).split(",")) {
+                String[] parts = entry.split(":");
+                trafficRing.recordRemote(Long.parseLong(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Ignoring malformed traffic message: {}", e.getMessage());
+        }
+    }
+}
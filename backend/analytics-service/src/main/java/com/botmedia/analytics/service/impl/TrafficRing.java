@@ -0,0 +1,261 @@
+package com.botmedia.analytics.service.impl;
+
+import com.botmedia.analytics.dto.ArticleStatsVO;
+import com.botmedia.analytics.dto.MinuteViewCount;
+import com.botmedia.analytics.dto.TrafficDeltaVO;
+import com.botmedia.analytics.dto.TrafficSnapshotVO;
+import com.botmedia.analytics.entity.ArticleView;
+import com.botmedia.analytics.repository.ArticleViewMapper;
+import com.botmedia.analytics.util.LongLongHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Traffic Ring
+ * Per-minute view counters for the last 24 hours, total and per article, in a ring of 1440 buckets.
+ * Buckets are bumped as this instance persists views and as other instances' counts arrive through
+ * {@link TrafficFanout}, so recent minutes are live across the cluster; once a minute is older than the reconcile
+ * lag it is reloaded from article_view, which replaces the live counts with the stored ones.
+ */
+@Component
+public class TrafficRing {
+
+    private static final Logger log = LoggerFactory.getLogger(TrafficRing.class);
+
+    private static final int MINUTES = 24 * 60;
+
+    @Autowired
+    private ArticleViewMapper articleViewMapper;
+
+    @Value("${analytics.traffic.reconcile-lag-seconds:120}")
+    private long reconcileLagSeconds;
+
+    private final Bucket[] buckets = new Bucket[MINUTES];
+    private long deltaViews;
+    private LongLongHashMap deltaArticleViews = new LongLongHashMap();
+
+    // Views persisted here since the last fanout, by minute
+    private Map<Long, LongLongHashMap> outgoing = new HashMap<>();
+
+    // First minute not yet reloaded from article_view
+    private long reconciledUpTo;
+
+    @PostConstruct
+    public void init() {
+        for (int i = 0; i < MINUTES; i++) {
+            buckets[i] = new Bucket();
+        }
+        reconciledUpTo = minuteOf(LocalDateTime.now()) - MINUTES + 1;
+        try {
+            reconcile();
+        } catch (Exception e) {
+            log.error("Failed to load the last 24h of traffic, starting empty: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Count persisted views into their minutes and into the pending stream delta
+     */
+    public synchronized void record(List<ArticleView> views) {
+        for (ArticleView view : views) {
+            long minute = minuteOf(view.getViewedAt());
+            bucket(minute).add(view.getArticleId(), 1);
+            deltaViews++;
+            deltaArticleViews.addTo(view.getArticleId(), 1);
+            outgoing.computeIfAbsent(minute, m -> new LongLongHashMap()).addTo(view.getArticleId(), 1);
+        }
+    }
+
+    /**
+     * Count views another instance persisted. Minutes already reloaded from article_view include them, and
+     * minutes outside the ring are not kept, so those are ignored.
+     */
+    public synchronized void recordRemote(long minute, long articleId, long views) {
+        long now = minuteOf(LocalDateTime.now());
+        if (minute < reconciledUpTo || minute <= now - MINUTES || minute > now + 1) {
+            return;
+        }
+        bucket(minute).add(articleId, views);
+        deltaViews += views;
+        deltaArticleViews.addTo(articleId, views);
+    }
+
+    /**
+     * Take the views persisted here since the previous call, by minute, for other instances
+     */
+    public synchronized Map<Long, LongLongHashMap> takeOutgoing() {
+        Map<Long, LongLongHashMap> taken = outgoing;
+        outgoing = new HashMap<>();
+        return taken;
+    }
+
+    /**
+     * Reload every closed minute since the last reconcile from article_view
+     */
+    @Scheduled(fixedDelayString = "${analytics.traffic.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        long now = minuteOf(LocalDateTime.now());
+        long from = Math.max(reconciledUpTo, now - MINUTES + 1);
+        long to = minuteOf(LocalDateTime.now().minusSeconds(reconcileLagSeconds));
+        if (from >= to) {
+            return;
+        }
+
+        Map<Long, Bucket> reloaded = new HashMap<>();
+        for (long minute = from; minute < to; minute++) {
+            Bucket bucket = new Bucket();
+            bucket.minute = minute;
+            reloaded.put(minute, bucket);
+        }
+        for (MinuteViewCount count : articleViewMapper.countViewsByMinute(timeOf(from), timeOf(to))) {
+            Bucket bucket = reloaded.get(minuteOf(count.getMinute()));
+            if (bucket != null) {
+                bucket.add(count.getArticleId(), count.getViews());
+            }
+        }
+
+        synchronized (this) {
+            for (Bucket bucket : reloaded.values()) {
+                buckets[slot(bucket.minute)] = bucket;
+            }
+            reconciledUpTo = to;
+        }
+    }
+
+    /**
+     * Views since the given time, which must be within the last 24 hours to be complete
+     */
+    public synchronized long viewsSince(LocalDateTime since) {
+        long from = minuteOf(since);
+        long now = minuteOf(LocalDateTime.now());
+        long total = 0;
+        for (Bucket bucket : buckets) {
+            if (bucket.minute >= from && bucket.minute > now - MINUTES && bucket.minute <= now) {
+                total += bucket.total;
+            }
+        }
+        return total;
+    }
+
+    public long todayViews() {
+        return viewsSince(LocalDate.now().atStartOfDay());
+    }
+
+    /**
+     * Per-minute totals for the last {@code minutes} minutes, ending with the current one,
+     * and the most viewed articles over them
+     */
+    public TrafficSnapshotVO snapshot(int minutes, int topLimit) {
+        int count = Math.max(1, Math.min(minutes, MINUTES));
+        long now = minuteOf(LocalDateTime.now());
+        List<Long> series = new ArrayList<>(count);
+        LongLongHashMap articleViews = new LongLongHashMap();
+        synchronized (this) {
+            for (long minute = now - count + 1; minute <= now; minute++) {
+                Bucket bucket = buckets[slot(minute)];
+                if (bucket.minute == minute) {
+                    series.add(bucket.total);
+                    bucket.articleViews.forEach(articleViews::addTo);
+                } else {
+                    series.add(0L);
+                }
+            }
+        }
+
+        List<ArticleStatsVO> topArticles = new ArrayList<>(articleViews.size());
+        articleViews.forEach((articleId, views) -> {
+            ArticleStatsVO stats = new ArticleStatsVO();
+            stats.setArticleId(articleId);
+            stats.setViewCount(views);
+            topArticles.add(stats);
+        });
+        topArticles.sort(Comparator.comparing(ArticleStatsVO::getViewCount).reversed());
+
+        TrafficSnapshotVO snapshot = new TrafficSnapshotVO();
+        snapshot.setStartMinute(timeOf(now - count + 1));
+        snapshot.setMinuteViews(series);
+        snapshot.setTopArticles(new ArrayList<>(topArticles.subList(0, Math.min(topLimit, topArticles.size()))));
+        snapshot.setTodayViews(todayViews());
+        return snapshot;
+    }
+
+    /**
+     * Take the views recorded since the previous call
+     */
+    public TrafficDeltaVO takeDelta() {
+        long views;
+        LongLongHashMap articleViews;
+        long currentMinute;
+        LocalDateTime now = LocalDateTime.now();
+        synchronized (this) {
+            views = deltaViews;
+            articleViews = deltaArticleViews;
+            deltaViews = 0;
+            deltaArticleViews = new LongLongHashMap();
+            Bucket bucket = buckets[slot(minuteOf(now))];
+            currentMinute = bucket.minute == minuteOf(now) ? bucket.total : 0L;
+        }
+
+        Map<Long, Long> perArticle = new HashMap<>(articleViews.size() * 2);
+        articleViews.forEach(perArticle::put);
+        TrafficDeltaVO delta = new TrafficDeltaVO();
+        delta.setTimestamp(now);
+        delta.setViews(views);
+        delta.setArticleViews(perArticle);
+        delta.setCurrentMinuteViews(currentMinute);
+        delta.setTodayViews(todayViews());
+        return delta;
+    }
+
+    private Bucket bucket(long minute) {
+        Bucket bucket = buckets[slot(minute)];
+        if (bucket.minute != minute) {
+            bucket = new Bucket();
+            bucket.minute = minute;
+            buckets[slot(minute)] = bucket;
+        }
+        return bucket;
+    }
+
+    private static int slot(long minute) {
+        return (int) Math.floorMod(minute, (long) MINUTES);
+    }
+
+    /**
+     * Minutes since the epoch of a local date-time, taken as-is; all times in this service are local
+     */
+    private static long minuteOf(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    private static LocalDateTime timeOf(long minute) {
+        return LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC).truncatedTo(ChronoUnit.MINUTES);
+    }
+
+    private static final class Bucket {
+
+        private long minute = Long.MIN_VALUE;
+        private long total;
+        private final LongLongHashMap articleViews = new LongLongHashMap();
+
+        private void add(long articleId, long views) {
+            total += views;
+            articleViews.addTo(articleId, views);
+        }
+    }
+}
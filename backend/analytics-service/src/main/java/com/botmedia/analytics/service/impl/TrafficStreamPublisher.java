@@ -0,0 +1,162 @@
+package com.botmedia.analytics.service.impl;
+
+import com.botmedia.analytics.dto.TrafficDeltaVO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Traffic Stream Publisher
+ * Server-Sent Events for the live dashboard: a snapshot of the last hour when a client connects,
+ * then one delta per second shared by all subscribers.
+ * The tick runs on its own thread rather than the shared scheduler, so long jobs never delay it, and it also
+ * fans this instance's counts out to the others just before taking the delta. Sends are handed to a small pool,
+ * one drain at a time per subscriber so deltas stay in order; a subscriber that falls more than max-backlog
+ * deltas behind is dropped instead of holding up anyone else.
+ */
+@Component
+public class TrafficStreamPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(TrafficStreamPublisher.class);
+
+    private static final int SNAPSHOT_MINUTES = 60;
+    private static final int SNAPSHOT_TOP_ARTICLES = 10;
+
+    @Autowired
+    private TrafficRing trafficRing;
+
+    @Autowired
+    private TrafficFanout trafficFanout;
+
+    @Value("${analytics.traffic.stream-timeout-ms:1800000}")
+    private long streamTimeoutMs;
+
+    @Value("${analytics.traffic.stream-interval-ms:1000}")
+    private long streamIntervalMs;
+
+    @Value("${analytics.traffic.send-threads:2}")
+    private int sendThreads;
+
+    @Value("${analytics.traffic.max-backlog:30}")
+    private int maxBacklog;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService ticker;
+    private ExecutorService sender;
+
+    @PostConstruct
+    public void start() {
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "traffic-stream-tick");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger threads = new AtomicInteger();
+        sender = Executors.newFixedThreadPool(Math.max(1, sendThreads), r -> {
+            Thread thread = new Thread(r, "traffic-stream-send-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::publish, streamIntervalMs, streamIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        ticker.shutdownNow();
+        sender.shutdownNow();
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        try {
+            emitter.send(SseEmitter.event().name("snapshot").data(trafficRing.snapshot(SNAPSHOT_MINUTES, SNAPSHOT_TOP_ARTICLES)));
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+            return emitter;
+        }
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    private void publish() {
+        try {
+            trafficFanout.publish();
+            // Taken even without subscribers so the next delta only covers the last interval
+            TrafficDeltaVO delta = trafficRing.takeDelta();
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offer(delta);
+            }
+        } catch (RuntimeException e) {
+            // An exception would cancel the fixed-rate task for good
+            log.error("Traffic stream tick failed: {}", e.getMessage());
+        }
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Queue<TrafficDeltaVO> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger backlog = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private void offer(TrafficDeltaVO delta) {
+            if (backlog.incrementAndGet() > maxBacklog) {
+                log.debug("Dropping analytics stream subscriber {} deltas behind", maxBacklog);
+                subscribers.remove(this);
+                emitter.complete();
+                return;
+            }
+            pending.add(delta);
+            if (draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                TrafficDeltaVO delta;
+                while ((delta = pending.poll()) != null) {
+                    backlog.decrementAndGet();
+                    try {
+                        emitter.send(SseEmitter.event().name("delta").data(delta));
+                    } catch (IOException | IllegalStateException e) {
+                        log.debug("Dropping analytics stream subscriber: {}", e.getMessage());
+                        subscribers.remove(this);
+                        pending.clear();
+                        return;
+                    }
+                }
+                draining.set(false);
+                // A delta offered after the last poll but before the flag was cleared would otherwise wait a tick
+                if (pending.isEmpty() || !draining.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        }
+    }
+}
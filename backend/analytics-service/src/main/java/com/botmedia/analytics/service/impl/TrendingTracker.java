@@ -0,0 +1,213 @@
+package com.botmedia.analytics.service.impl;
+
+import com.botmedia.analytics.dto.TrendingArticleVO;
+import com.botmedia.analytics.entity.ArticleView;
+import com.botmedia.analytics.util.LongLongHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Trending Tracker
+ * Ranks articles by exponentially decayed views. Rather than decaying every score as time passes, each view at
+ * time t adds e^(λt) to its article's score (λ = ln 2 / half-life), so all scores share the same decay factor
+ * and compare directly, and a view costs O(1) plus a heap adjustment with no periodic rescoring. Scores are kept
+ * as logarithms, added with log-sum-exp, so e^(λt) never overflows. Only the top {@code capacity} articles are
+ * held, in an indexed min-heap; an article pushed out starts again from its next view.
+ * The heap is snapshotted to a Redis sorted set and reloaded on startup, so restarts are warm. Each instance
+ * ranks the views it ingests and the latest snapshot wins.
+ */
+@Component
+public class TrendingTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(TrendingTracker.class);
+
+    private static final String SNAPSHOT_KEY = "analytics:trending";
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Value("${analytics.trending.half-life-minutes:360}")
+    private long halfLifeMinutes;
+
+    @Value("${analytics.trending.capacity:1000}")
+    private int capacity;
+
+    private double lambda;
+    private final LongLongHashMap positions = new LongLongHashMap();
+    private long[] heapIds;
+    private double[] heapScores;
+    private int heapSize;
+
+    @PostConstruct
+    public void init() {
+        lambda = Math.log(2) / (halfLifeMinutes * 60.0);
+        heapIds = new long[capacity];
+        heapScores = new double[capacity];
+        try {
+            Set<ZSetOperations.TypedTuple<String>> snapshot = redisTemplate.opsForZSet().reverseRangeWithScores(SNAPSHOT_KEY, 0, capacity - 1);
+            if (snapshot != null) {
+                for (ZSetOperations.TypedTuple<String> entry : snapshot) {
+                    if (entry.getValue() != null && entry.getScore() != null) {
+                        add(Long.parseLong(entry.getValue()), entry.getScore());
+                    }
+                }
+                log.info("Loaded {} trending articles from Redis", heapSize);
+            }
+        } catch (Exception e) {
+            log.error("Failed to load trending snapshot, starting cold: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Add persisted views to their articles' scores
+     */
+    public synchronized void record(List<ArticleView> views) {
+        for (ArticleView view : views) {
+            add(view.getArticleId(), lambda * view.getViewedAt().toEpochSecond(ZoneOffset.UTC));
+        }
+    }
+
+    /**
+     * Highest-scoring articles, with scores decayed to now
+     */
+    public List<TrendingArticleVO> top(int limit) {
+        long[] ids;
+        double[] scores;
+        synchronized (this) {
+            ids = Arrays.copyOf(heapIds, heapSize);
+            scores = Arrays.copyOf(heapScores, heapSize);
+        }
+
+        Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> scores[a] != scores[b]
+                ? Double.compare(scores[b], scores[a]) : Long.compare(ids[a], ids[b]));
+
+        double now = lambda * LocalDateTime.now().toEpochSecond(ZoneOffset.UTC);
+        int n = Math.min(Math.max(limit, 0), order.length);
+        List<TrendingArticleVO> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            TrendingArticleVO article = new TrendingArticleVO();
+            article.setArticleId(ids[order[i]]);
+            article.setScore(Math.exp(scores[order[i]] - now));
+            result.add(article);
+        }
+        return result;
+    }
+
+    /**
+     * Replace the Redis snapshot with the current heap; written under a temporary key and renamed,
+     * so readers never see a partial snapshot
+     */
+    @Scheduled(initialDelayString = "${analytics.trending.snapshot-interval-ms:60000}",
+            fixedDelayString = "${analytics.trending.snapshot-interval-ms:60000}")
+    @PreDestroy
+    public void snapshot() {
+        long[] ids;
+        double[] scores;
+        synchronized (this) {
+            ids = Arrays.copyOf(heapIds, heapSize);
+            scores = Arrays.copyOf(heapScores, heapSize);
+        }
+        if (ids.length == 0) {
+            return;
+        }
+        String tmpKey = SNAPSHOT_KEY + ":tmp:" + UUID.randomUUID();
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection redis = (StringRedisConnection) connection;
+                for (int i = 0; i < ids.length; i++) {
+                    redis.zAdd(tmpKey, scores[i], Long.toString(ids[i]));
+                }
+                redis.rename(tmpKey, SNAPSHOT_KEY);
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Failed to snapshot {} trending articles: {}", ids.length, e.getMessage());
+        }
+    }
+
+    private void add(long articleId, double logDelta) {
+        int pos = (int) positions.get(articleId, -1L);
+        if (pos >= 0) {
+            heapScores[pos] = logSumExp(heapScores[pos], logDelta);
+            siftDown(pos);
+        } else if (heapSize < heapIds.length) {
+            heapIds[heapSize] = articleId;
+            heapScores[heapSize] = logDelta;
+            positions.put(articleId, heapSize);
+            siftUp(heapSize++);
+        } else if (heapSize > 0 && logDelta > heapScores[0]) {
+            positions.remove(heapIds[0]);
+            heapIds[0] = articleId;
+            heapScores[0] = logDelta;
+            positions.put(articleId, 0);
+            siftDown(0);
+        }
+    }
+
+    /**
+     * log(e^a + e^b) without leaving log space
+     */
+    private static double logSumExp(double a, double b) {
+        double max = Math.max(a, b);
+        return max + Math.log1p(Math.exp(Math.min(a, b) - max));
+    }
+
+    private void siftUp(int pos) {
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (heapScores[parent] <= heapScores[pos]) {
+                break;
+            }
+            swap(pos, parent);
+            pos = parent;
+        }
+    }
+
+    private void siftDown(int pos) {
+        while (true) {
+            int left = 2 * pos + 1;
+            if (left >= heapSize) {
+                break;
+            }
+            int smallest = left + 1 < heapSize && heapScores[left + 1] < heapScores[left] ? left + 1 : left;
+            if (heapScores[pos] <= heapScores[smallest]) {
+                break;
+            }
+            swap(pos, smallest);
+            pos = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long id = heapIds[a];
+        double score = heapScores[a];
+        heapIds[a] = heapIds[b];
+        heapScores[a] = heapScores[b];
+        heapIds[b] = id;
+        heapScores[b] = score;
+        positions.put(heapIds[a], a);
+        positions.put(heapIds[b], b);
+    }
+}
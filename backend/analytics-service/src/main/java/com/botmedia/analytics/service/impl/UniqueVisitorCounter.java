@@ -0,0 +1,134 @@
+package com.botmedia.analytics.service.impl;
+
+import com.botmedia.analytics.entity.ArticleView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Unique Visitor Counter
+ * Per-day and per-article-per-day HyperLogLog sketches of visitors (user ID, or IP for anonymous views),
+ * kept as Redis HLL keys. Every instance adds to the same keys, and a date range is answered by PFCOUNT
+ * over the union of the daily sketches, with about 0.81% standard error and no table scan.
+ */
+@Component
+public class UniqueVisitorCounter {
+
+    private static final Logger log = LoggerFactory.getLogger(UniqueVisitorCounter.class);
+
+    private static final String KEY_PREFIX = "analytics:uv:";
+    private static final DateTimeFormatter DAY = DateTimeFormatter.BASIC_ISO_DATE;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Value("${analytics.unique-visitors.retention-days:400}")
+    private long retentionDays;
+
+    /**
+     * Add the visitors of a batch of views to their daily sketches in one pipelined round trip
+     */
+    public void record(List<ArticleView> views) {
+        Map<String, Set<String>> visitorsByKey = new HashMap<>();
+        for (ArticleView view : views) {
+            String visitor = visitorId(view.getUserId(), view.getIpAddress());
+            if (visitor == null) {
+                continue;
+            }
+            LocalDate day = view.getViewedAt().toLocalDate();
+            visitorsByKey.computeIfAbsent(dayKey(day), k -> new HashSet<>()).add(visitor);
+            visitorsByKey.computeIfAbsent(articleKey(day, view.getArticleId()), k -> new HashSet<>()).add(visitor);
+        }
+        if (visitorsByKey.isEmpty()) {
+            return;
+        }
+
+        long ttlSeconds = Duration.ofDays(retentionDays).getSeconds();
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection redis = (StringRedisConnection) connection;
+                visitorsByKey.forEach((key, visitors) -> {
+                    redis.pfAdd(key, visitors.toArray(new String[0]));
+                    redis.expire(key, ttlSeconds);
+                });
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Failed to record unique visitors for {} sketches: {}", visitorsByKey.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Estimated distinct visitors over an inclusive date range, overall or for one article
+     */
+    public long count(LocalDate startDate, LocalDate endDate, Long articleId) {
+        List<String> keys = new ArrayList<>();
+        for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+            keys.add(articleId != null ? articleKey(day, articleId) : dayKey(day));
+        }
+        Long size = redisTemplate.opsForHyperLogLog().size(keys.toArray(new String[0]));
+        return size != null ? size : 0L;
+    }
+
+    /**
+     * Estimated distinct visitors for each of the given days, in one pipelined round trip;
+     * empty if Redis is unavailable
+     */
+    public Map<LocalDate, Long> countPerDay(List<LocalDate> days) {
+        Map<LocalDate, Long> counts = new HashMap<>();
+        if (days.isEmpty()) {
+            return counts;
+        }
+        List<Object> sizes;
+        try {
+            sizes = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection redis = (StringRedisConnection) connection;
+                for (LocalDate day : days) {
+                    redis.pfCount(dayKey(day));
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Failed to read unique visitor sketches: {}", e.getMessage());
+            return counts;
+        }
+        for (int i = 0; i < days.size(); i++) {
+            Object size = sizes.get(i);
+            counts.put(days.get(i), size instanceof Long ? (Long) size : 0L);
+        }
+        return counts;
+    }
+
+    static String visitorId(Long userId, String ipAddress) {
+        if (userId != null) {
+            return "u:" + userId;
+        }
+        if (ipAddress != null && !ipAddress.isEmpty()) {
+            return "ip:" + ipAddress;
+        }
+        return null;
+    }
+
+    private static String dayKey(LocalDate day) {
+        return KEY_PREFIX + day.format(DAY);
+    }
+
+    private static String articleKey(LocalDate day, Long articleId) {
+        return KEY_PREFIX + day.format(DAY) + ":" + articleId;
+    }
+}
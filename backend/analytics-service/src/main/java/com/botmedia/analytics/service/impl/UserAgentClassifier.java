@@ -0,0 +1,94 @@
+package com.botmedia.analytics.service.impl;
+
+import com.botmedia.analytics.util.AhoCorasickMatcher;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * User Agent Classifier
+ * Decides whether a view comes from a bot or crawler by matching its user agent against the configured signatures
+ * with an Aho-Corasick automaton, one pass over the string whatever the number of signatures. Traffic repeats a
+ * small set of user agents, so verdicts are kept in an LRU cache split into lock stripes to spread contention.
+ * Views without a user agent are not treated as bots.
+ */
+@Component
+public class UserAgentClassifier {
+
+    private static final Logger log = LoggerFactory.getLogger(UserAgentClassifier.class);
+
+    private static final int STRIPES = 16;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${analytics.bots.signatures:bot,crawl,spider,slurp}")
+    private List<String> signatures;
+
+    @Value("${analytics.bots.cache-size:10000}")
+    private int cacheSize;
+
+    private AhoCorasickMatcher matcher;
+    private VerdictCache[] caches;
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        matcher = new AhoCorasickMatcher(signatures);
+        caches = new VerdictCache[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            caches[i] = new VerdictCache(Math.max(1, cacheSize / STRIPES));
+        }
+        FunctionCounter.builder("analytics.bots.cache.hits", cacheHits, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("analytics.bots.cache.misses", cacheMisses, LongAdder::sum).register(meterRegistry);
+        log.info("Compiled {} bot signatures into {} matcher states", signatures.size(), matcher.stateCount());
+    }
+
+    public boolean isBot(String userAgent) {
+        if (userAgent == null || userAgent.isEmpty()) {
+            return false;
+        }
+        VerdictCache cache = caches[(userAgent.hashCode() & 0x7fffffff) % STRIPES];
+        Boolean verdict;
+        synchronized (cache) {
+            verdict = cache.get(userAgent);
+        }
+        if (verdict != null) {
+            cacheHits.increment();
+            return verdict;
+        }
+
+        cacheMisses.increment();
+        boolean bot = matcher.matches(userAgent);
+        synchronized (cache) {
+            cache.put(userAgent, bot);
+        }
+        return bot;
+    }
+
+    private static final class VerdictCache extends LinkedHashMap<String, Boolean> {
+
+        private final int capacity;
+
+        private VerdictCache(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > capacity;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.botmedia.analytics.service.impl;
+
+import com.botmedia.analytics.entity.ArticleView;
+import com.botmedia.analytics.repository.ArticleViewMapper;
+import com.botmedia.analytics.storage.ColdViewStore;
+import com.botmedia.analytics.storage.ViewSegment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.channels.FileLock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * View Archiver
+ * Moves article_view rows older than retention-days into cold segments, one day at a time and oldest first.
+ * A day is copied into segments first, then the cold boundary moves past it, and only then are its rows deleted
+ * from MySQL in small batches, so readers see each view in exactly one place. A crash while copying resumes after
+ * the last key already written; a crash while deleting is finished on the next run.
+ * The cron only hands the run to the archiver's own thread, since a backlog of days can take far longer than
+ * the other jobs on the shared scheduler are willing to wait; a tick that finds a run still going is skipped.
+ */
+@Component
+public class ViewArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(ViewArchiver.class);
+
+    @Autowired
+    private ArticleViewMapper articleViewMapper;
+
+    @Autowired
+    private ColdViewStore coldViewStore;
+
+    @Value("${analytics.cold-storage.enabled:false}")
+    private boolean enabled;
+
+    @Value("${analytics.cold-storage.retention-days:90}")
+    private int retentionDays;
+
+    @Value("${analytics.cold-storage.segment-rows:200000}")
+    private int segmentRows;
+
+    @Value("${analytics.cold-storage.batch-size:5000}")
+    private int batchSize;
+
+    private final AtomicBoolean archiving = new AtomicBoolean();
+    private final ExecutorService archiveExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "view-archiver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PreDestroy
+    public void close() {
+        archiveExecutor.shutdownNow();
+    }
+
+    @Scheduled(cron = "${analytics.cold-storage.cron:0 30 3 * * *}")
+    public void archive() {
+        if (!enabled) {
+            return;
+        }
+        if (!archiving.compareAndSet(false, true)) {
+            log.info("Skipping view archiving, the previous run is still going");
+            return;
+        }
+        archiveExecutor.submit(() -> {
+            try {
+                archiveUnderLock();
+            } catch (RuntimeException e) {
+                log.error("View archiving failed: {}", e.getMessage());
+            } finally {
+                archiving.set(false);
+            }
+        });
+    }
+
+    private void archiveUnderLock() {
+        try {
+            FileLock lock = coldViewStore.tryLockArchive();
+            if (lock == null) {
+                log.info("Skipping view archiving, another process holds the archive lock");
+                return;
+            }
+            try {
+                archiveExpiredDays();
+            } finally {
+                lock.channel().close();
+            }
+        } catch (IOException e) {
+            log.error("View archiving failed: {}", e.getMessage());
+        }
+    }
+
+    private void archiveExpiredDays() throws IOException {
+        LocalDate cutoff = LocalDate.now().minusDays(retentionDays);
+        LocalDate boundary = coldViewStore.getBoundary();
+        if (boundary != null) {
+            purge(boundary);
+        }
+
+        LocalDateTime oldest = articleViewMapper.selectMinViewedAt();
+        while (oldest != null && oldest.toLocalDate().isBefore(cutoff)) {
+            LocalDate day = oldest.toLocalDate();
+            long start = System.currentTimeMillis();
+            long rows = copyDay(day);
+            coldViewStore.advanceBoundary(day.plusDays(1));
+            long deleted = purge(day.plusDays(1));
+            log.info("Archived {} views of {} ({} deleted from MySQL) in {} ms",
+                    rows, day, deleted, System.currentTimeMillis() - start);
+            oldest = articleViewMapper.selectMinViewedAt();
+        }
+    }
+
+    /**
+     * Copy the day's rows into segments, continuing after any segment already written for it
+     */
+    private long copyDay(LocalDate day) throws IOException {
+        LocalDateTime from = day.atStartOfDay();
+        LocalDateTime to = day.plusDays(1).atStartOfDay();
+        ViewSegment last = coldViewStore.lastSegment(day);
+        LocalDateTime afterViewedAt = last != null ? last.getMaxViewedAt() : null;
+        Long afterId = last != null ? last.getLastId() : null;
+
+        long copied = 0;
+        List<ArticleView> rows = new ArrayList<>(Math.min(segmentRows, 1 << 16));
+        while (true) {
+            List<ArticleView> page = articleViewMapper.selectRange(from, to, afterViewedAt, afterId, batchSize);
+            rows.addAll(page);
+            if (rows.size() >= segmentRows || (page.size() < batchSize && !rows.isEmpty())) {
+                coldViewStore.addSegment(day, rows);
+                copied += rows.size();
+                rows.clear();
+            }
+            if (page.size() < batchSize) {
+                return copied;
+            }
+            ArticleView tail = page.get(page.size() - 1);
+            afterViewedAt = tail.getViewedAt();
+            afterId = tail.getId();
+        }
+    }
+
+    /**
+     * Delete rows before the cold boundary in batches, keeping each statement's lock footprint small
+     */
+    private long purge(LocalDate boundary) {
+        long deleted = 0;
+        int batch;
+        do {
+            batch = articleViewMapper.deleteBefore(boundary.atStartOfDay(), batchSize);
+            deleted += batch;
+        } while (batch == batchSize);
+        return deleted;
+    }
+}
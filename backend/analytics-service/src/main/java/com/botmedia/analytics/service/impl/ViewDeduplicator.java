@@ -0,0 +1,190 @@
+package com.botmedia.analytics.service.impl;
+
+import com.botmedia.analytics.entity.ArticleView;
+import com.botmedia.analytics.util.BloomFilter;
+import com.botmedia.analytics.util.LongLongHashMap;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * View Deduplicator
+ * Drops repeat views of an article by the same visitor (user ID, else IP address) within a time window, without
+ * touching the database. The window is split into {@code generations} Bloom filters, each covering
+ * window / generations; a view is a duplicate if any live generation may contain it, and is added to the newest.
+ * When the newest generation's period ends the oldest is discarded, so a key is remembered for between
+ * window - window / generations and window. False positives drop a small, configurable share of genuine views.
+ * Keys are only recorded for views the ingest pipeline accepted.
+ * Deduplication is per instance.
+ */
+@Component
+public class ViewDeduplicator {
+
+    private static final Logger log = LoggerFactory.getLogger(ViewDeduplicator.class);
+
+    private static final long NO_KEY = 0;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${analytics.dedup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${analytics.dedup.window-minutes:60}")
+    private long windowMinutes;
+
+    @Value("${analytics.dedup.generations:2}")
+    private int generationCount;
+
+    @Value("${analytics.dedup.expected-views-per-generation:1000000}")
+    private long expectedViews;
+
+    @Value("${analytics.dedup.false-positive-rate:0.001}")
+    private double falsePositiveRate;
+
+    private long generationMillis;
+    private Counter duplicates;
+
+    // Newest first; replaced as a whole on rotation so readers never see a half-rotated array
+    private volatile Generations generations;
+
+    @PostConstruct
+    public void init() {
+        if (generationCount < 1) {
+            throw new IllegalArgumentException("analytics.dedup.generations must be at least 1");
+        }
+        generationMillis = Math.max(1, windowMinutes * 60_000 / generationCount);
+        duplicates = Counter.builder("analytics.ingest.duplicates").register(meterRegistry);
+
+        BloomFilter[] filters = new BloomFilter[generationCount];
+        for (int i = 0; i < generationCount; i++) {
+            filters[i] = new BloomFilter(expectedViews, falsePositiveRate);
+        }
+        generations = new Generations(System.currentTimeMillis() / generationMillis, filters);
+        log.info("View dedup window {} min over {} generations of {} bits, {} hashes",
+                windowMinutes, generationCount, filters[0].bitSize(), filters[0].hashCount());
+    }
+
+    /**
+     * Whether the view's (article, visitor) key was recorded within the window and the view should be dropped.
+     * Does not record the key; call {@link #record} once the view has been accepted, so a view the pipeline
+     * rejects is not counted as seen and the client's retry goes through.
+     */
+    public boolean isDuplicate(ArticleView view) {
+        return isDuplicate(key(view));
+    }
+
+    /**
+     * The views of a batch that are neither duplicates within the window nor repeats of an earlier view in the
+     * same batch. Records nothing; call {@link #recordAll} once the batch has been accepted.
+     */
+    public List<ArticleView> withoutDuplicates(List<ArticleView> views) {
+        LongLongHashMap batchKeys = new LongLongHashMap(views.size());
+        List<ArticleView> kept = new ArrayList<>(views.size());
+        for (ArticleView view : views) {
+            long hash = key(view);
+            if (hash != NO_KEY && batchKeys.addTo(hash, 1) > 1) {
+                duplicates.increment();
+            } else if (!isDuplicate(hash)) {
+                kept.add(view);
+            }
+        }
+        return kept;
+    }
+
+    private boolean isDuplicate(long hash) {
+        if (hash == NO_KEY) {
+            return false;
+        }
+        for (BloomFilter filter : current().filters) {
+            if (filter.mightContain(hash)) {
+                duplicates.increment();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Record the view's key in the newest generation. Two requests for the same key that both pass
+     * {@link #isDuplicate} before either records it are both kept.
+     */
+    public void record(ArticleView view) {
+        long hash = key(view);
+        if (hash != NO_KEY) {
+            // Older generations are only read, so a visitor who keeps reloading is counted again once per window
+            current().filters[0].put(hash);
+        }
+    }
+
+    public void recordAll(List<ArticleView> views) {
+        BloomFilter newest = current().filters[0];
+        for (ArticleView view : views) {
+            long hash = key(view);
+            if (hash != NO_KEY) {
+                newest.put(hash);
+            }
+        }
+    }
+
+    private long key(ArticleView view) {
+        if (!enabled) {
+            return NO_KEY;
+        }
+        String visitor = UniqueVisitorCounter.visitorId(view.getUserId(), view.getIpAddress());
+        if (visitor == null) {
+            return NO_KEY;
+        }
+        long hash = hash(view.getArticleId(), visitor);
+        return hash != NO_KEY ? hash : 1;
+    }
+
+    private Generations current() {
+        long period = System.currentTimeMillis() / generationMillis;
+        Generations live = generations;
+        if (live.period == period) {
+            return live;
+        }
+        synchronized (this) {
+            live = generations;
+            if (live.period == period) {
+                return live;
+            }
+            // Generations that ended more than one period ago are empty windows; skip them rather than rotate through
+            long elapsed = Math.min(period - live.period, generationCount);
+            BloomFilter[] rotated = new BloomFilter[generationCount];
+            for (int i = 0; i < generationCount; i++) {
+                rotated[i] = i < elapsed ? new BloomFilter(expectedViews, falsePositiveRate) : live.filters[(int) (i - elapsed)];
+            }
+            generations = new Generations(period, rotated);
+            return generations;
+        }
+    }
+
+    private static long hash(long articleId, String visitor) {
+        long h = 0xcbf29ce484222325L ^ articleId;
+        for (int i = 0; i < visitor.length(); i++) {
+            h = (h ^ visitor.charAt(i)) * 0x100000001b3L;
+        }
+        return BloomFilter.mix(h);
+    }
+
+    private static final class Generations {
+
+        private final long period;
+        private final BloomFilter[] filters;
+
+        private Generations(long period, BloomFilter[] filters) {
+            this.period = period;
+            this.filters = filters;
+        }
+    }
+}
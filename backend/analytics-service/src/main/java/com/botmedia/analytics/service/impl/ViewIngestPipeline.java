@@ -0,0 +1,204 @@
+package com.botmedia.analytics.service.impl;
+
+import com.botmedia.analytics.entity.ArticleView;
+import com.botmedia.analytics.repository.ArticleViewMapper;
+import com.botmedia.analytics.util.LongLongHashMap;
+import com.botmedia.analytics.util.MpscRingBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * View Ingest Pipeline
+ * Request threads enqueue views into a bounded lock-free ring buffer; a single drainer thread writes them
+ * with multi-row INSERTs of up to {@code batch-size} rows, or whatever has arrived after {@code flush-interval-ms}.
+ * When the buffer is full the overflow policy decides between dropping the view and rejecting the request.
+ */
+@Component
+public class ViewIngestPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(ViewIngestPipeline.class);
+
+    /**
+     * What to do with a view that arrives while the buffer is full
+     */
+    public enum OverflowPolicy {
+        /** Accept the request but discard the view (counted in analytics.ingest.dropped) */
+        DROP,
+        /** Refuse the request so the client backs off and retries */
+        REJECT
+    }
+
+    @Autowired
+    private ArticleViewMapper articleViewMapper;
+
+    @Autowired
+    private TopArticlesTracker topArticlesTracker;
+
+    @Autowired
+    private TrendingTracker trendingTracker;
+
+    @Autowired
+    private UniqueVisitorCounter uniqueVisitorCounter;
+
+    @Autowired
+    private TrafficRing trafficRing;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${analytics.ingest.buffer-size:65536}")
+    private int bufferSize;
+
+    @Value("${analytics.ingest.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${analytics.ingest.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${analytics.ingest.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${analytics.ingest.overflow-policy:DROP}")
+    private OverflowPolicy overflowPolicy;
+
+    private MpscRingBuffer<ArticleView> buffer;
+    private Thread drainer;
+    private volatile boolean running;
+
+    private Counter accepted;
+    private Counter dropped;
+    private Counter rejected;
+    private Counter failed;
+    private DistributionSummary batchSizes;
+    private Timer flushLatency;
+
+    @PostConstruct
+    public void start() {
+        buffer = new MpscRingBuffer<>(bufferSize);
+        Gauge.builder("analytics.ingest.queue.depth", buffer, MpscRingBuffer::size).register(meterRegistry);
+        accepted = Counter.builder("analytics.ingest.accepted").register(meterRegistry);
+        dropped = Counter.builder("analytics.ingest.dropped").register(meterRegistry);
+        rejected = Counter.builder("analytics.ingest.rejected").register(meterRegistry);
+        failed = Counter.builder("analytics.ingest.failed").register(meterRegistry);
+        batchSizes = DistributionSummary.builder("analytics.ingest.batch.size").register(meterRegistry);
+        flushLatency = Timer.builder("analytics.ingest.flush.latency").publishPercentiles(0.5, 0.99).register(meterRegistry);
+
+        running = true;
+        drainer = new Thread(this::drainLoop, "view-ingest-drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    /**
+     * Queue a view for writing.
+     * @return false if the buffer is full and the policy is REJECT; under DROP the view is discarded and true is returned
+     */
+    public boolean submit(ArticleView view) {
+        if (buffer.offer(view)) {
+            accepted.increment();
+            return true;
+        }
+        if (overflowPolicy == OverflowPolicy.REJECT) {
+            rejected.increment();
+            return false;
+        }
+        dropped.increment();
+        return true;
+    }
+
+    /**
+     * Queue a batch of views as a unit: either all of them are accepted or the overflow policy applies to all
+     * @return false if the buffer cannot take the batch and the policy is REJECT
+     */
+    public boolean submitAll(List<ArticleView> views) {
+        if (buffer.offerAll(views)) {
+            accepted.increment(views.size());
+            return true;
+        }
+        if (overflowPolicy == OverflowPolicy.REJECT) {
+            rejected.increment(views.size());
+            return false;
+        }
+        dropped.increment(views.size());
+        return true;
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(drainer);
+        drainer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    private void drainLoop() {
+        List<ArticleView> batch = new ArrayList<>(batchSize);
+        long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        long batchStarted = 0;
+        while (running) {
+            if (batch.isEmpty()) {
+                batchStarted = System.nanoTime();
+            }
+            buffer.drainTo(batch, batchSize - batch.size());
+
+            long waited = System.nanoTime() - batchStarted;
+            if (batch.size() >= batchSize || (!batch.isEmpty() && waited >= flushIntervalNanos)) {
+                flush(batch);
+                batch.clear();
+            } else {
+                LockSupport.parkNanos(Math.min(TimeUnit.MILLISECONDS.toNanos(1), flushIntervalNanos));
+            }
+        }
+
+        // Shutting down: write whatever is still queued
+        do {
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        } while (buffer.drainTo(batch, batchSize) > 0);
+    }
+
+    private void flush(List<ArticleView> batch) {
+        for (int attempt = 1; ; attempt++) {
+            long start = System.nanoTime();
+            try {
+                articleViewMapper.insertBatch(batch);
+                flushLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                batchSizes.record(batch.size());
+                break;
+            } catch (Exception e) {
+                if (attempt > maxRetries) {
+                    failed.increment(batch.size());
+                    log.error("Dropping {} views after {} failed inserts: {}", batch.size(), attempt, e.getMessage());
+                    return;
+                }
+                log.warn("Failed to insert {} views (attempt {}), retrying: {}", batch.size(), attempt, e.getMessage());
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100L << Math.min(attempt, 6)));
+            }
+        }
+
+        LongLongHashMap perArticle = new LongLongHashMap(batch.size());
+        for (ArticleView view : batch) {
+            perArticle.addTo(view.getArticleId(), 1);
+        }
+        perArticle.forEach(topArticlesTracker::increment);
+        trendingTracker.record(batch);
+        trafficRing.record(batch);
+        uniqueVisitorCounter.record(batch);
+    }
+}
@@ -0,0 +1,208 @@
+package com.botmedia.analytics.storage;
+
+import com.botmedia.analytics.entity.ArticleView;
+import com.botmedia.analytics.util.LongLongHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Cold View Store
+ * Directory of archived view segments, one or more per day. A BOUNDARY file records the first day that is
+ * still in MySQL: only days before it are served from here, so a day being archived is read from MySQL until
+ * all of its rows have been moved. With several service instances the directory must be shared storage;
+ * instances that do not archive pick up new segments and boundary moves on a periodic refresh.
+ */
+@Component
+public class ColdViewStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ColdViewStore.class);
+
+    private static final DateTimeFormatter DAY = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final String BOUNDARY_FILE = "BOUNDARY";
+    private static final String LOCK_FILE = "archive.lock";
+    private static final String SEGMENT_PREFIX = "views-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    @Value("${analytics.cold-storage.dir:data/cold-views}")
+    private String directory;
+
+    private Path root;
+    private volatile LocalDate boundary;
+    private volatile List<Segment> segments = Collections.emptyList();
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(directory);
+        Files.createDirectories(root);
+        refresh();
+        log.info("Opened {} cold view segments, boundary {}", segments.size(), boundary);
+    }
+
+    /**
+     * Pick up segments and boundary moves written by an archiver in another process sharing the directory
+     */
+    @Scheduled(fixedDelayString = "${analytics.cold-storage.refresh-interval-ms:60000}")
+    public synchronized void refresh() throws IOException {
+        Map<Path, Segment> known = new HashMap<>();
+        for (Segment segment : segments) {
+            known.put(segment.segment.getFile(), segment);
+        }
+        List<Segment> loaded = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(root, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                Segment segment = known.get(file);
+                loaded.add(segment != null ? segment : new Segment(dayOf(file), ViewSegment.open(file)));
+            }
+        }
+        loaded.sort(Comparator.comparing((Segment s) -> s.day).thenComparing(s -> s.segment.getMinViewedAt()));
+        segments = Collections.unmodifiableList(loaded);
+
+        Path boundaryFile = root.resolve(BOUNDARY_FILE);
+        if (Files.exists(boundaryFile)) {
+            boundary = LocalDate.parse(new String(Files.readAllBytes(boundaryFile), StandardCharsets.UTF_8).trim());
+        }
+    }
+
+    /**
+     * First day still held in MySQL, or null if nothing has been archived yet
+     */
+    public LocalDate getBoundary() {
+        return boundary;
+    }
+
+    /**
+     * Mark every day before {@code day} as fully archived
+     */
+    public synchronized void advanceBoundary(LocalDate day) throws IOException {
+        Path tmp = root.resolve(BOUNDARY_FILE + ".tmp");
+        Files.write(tmp, day.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, root.resolve(BOUNDARY_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        boundary = day;
+    }
+
+    /**
+     * Exclusive lock held while archiving, so only one process moves rows at a time; null if held elsewhere
+     */
+    public FileLock tryLockArchive() throws IOException {
+        FileChannel channel = FileChannel.open(root.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock = channel.tryLock();
+        if (lock == null) {
+            channel.close();
+        }
+        return lock;
+    }
+
+    /**
+     * The segment of {@code day} that holds its largest (viewedAt, id) key, or null if the day has none
+     */
+    public ViewSegment lastSegment(LocalDate day) {
+        ViewSegment last = null;
+        for (Segment segment : segments) {
+            if (segment.day.equals(day)) {
+                last = segment.segment;
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Write rows of one day, sorted by (viewedAt, id) and following any segment already written for it
+     */
+    public synchronized void addSegment(LocalDate day, List<ArticleView> rows) throws IOException {
+        int sequence = 0;
+        for (Segment segment : segments) {
+            if (segment.day.equals(day)) {
+                sequence++;
+            }
+        }
+        String name = SEGMENT_PREFIX + day.format(DAY) + "-" + String.format("%06d", sequence) + SEGMENT_SUFFIX;
+        Path tmp = root.resolve(name + ".tmp");
+        Files.deleteIfExists(tmp);
+        ViewSegment.write(tmp, rows);
+        Path file = Files.move(tmp, root.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+
+        List<Segment> updated = new ArrayList<>(segments);
+        updated.add(new Segment(day, ViewSegment.open(file)));
+        segments = Collections.unmodifiableList(updated);
+    }
+
+    /**
+     * Archived views of days before {@code boundary} with viewedAt in [from, to), in (viewedAt, id) order.
+     * Readers pass the boundary they split their query at, so a concurrent advance cannot count a day twice.
+     */
+    public void scan(LocalDate boundary, LocalDateTime from, LocalDateTime to, Consumer<ArticleView> consumer) {
+        for (Segment segment : readable(boundary)) {
+            segment.segment.scan(from, to, consumer);
+        }
+    }
+
+    /**
+     * Add archived views of days before {@code boundary} per day in [from, to) to {@code counts}
+     */
+    public void countByDay(LocalDate boundary, LocalDateTime from, LocalDateTime to, Map<LocalDate, Long> counts) {
+        for (Segment segment : readable(boundary)) {
+            segment.segment.countByDay(from, to, counts);
+        }
+    }
+
+    /**
+     * Add archived views of days before {@code boundary} per day and article in [from, to) to {@code counts}
+     */
+    public void countByDayAndArticle(LocalDate boundary, LocalDateTime from, LocalDateTime to,
+                                     Map<LocalDate, LongLongHashMap> counts) {
+        for (Segment segment : readable(boundary)) {
+            segment.segment.countByDayAndArticle(from, to, counts);
+        }
+    }
+
+    private List<Segment> readable(LocalDate boundary) {
+        List<Segment> readable = new ArrayList<>();
+        for (Segment segment : segments) {
+            if (segment.day.isBefore(boundary)) {
+                readable.add(segment);
+            }
+        }
+        return readable;
+    }
+
+    private static LocalDate dayOf(Path file) {
+        String name = file.getFileName().toString();
+        return LocalDate.parse(name.substring(SEGMENT_PREFIX.length(), SEGMENT_PREFIX.length() + 8), DAY);
+    }
+
+    private static final class Segment {
+
+        private final LocalDate day;
+        private final ViewSegment segment;
+
+        private Segment(LocalDate day, ViewSegment segment) {
+            this.day = day;
+            this.segment = segment;
+        }
+    }
+}
@@ -0,0 +1,484 @@
+package com.botmedia.analytics.storage;
+
+import com.botmedia.analytics.entity.ArticleView;
+import com.botmedia.analytics.util.LongLongHashMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * View Segment
+ * Immutable columnar file of archived article views, sorted by (viewedAt, id).
+ * Each column is encoded on its own and then deflated: ids and timestamps as zigzag varint deltas, article and
+ * user IDs as varints, and IP address and user agent through a per-segment dictionary, since a day's worth of
+ * views repeats a small set of values. Files are memory-mapped and a scan only inflates the columns it needs,
+ * streaming each one straight out of its slice of the mapping through a small window rather than into a
+ * column-sized array, so a scan's heap use does not grow with the segment.
+ * <p>
+ * Layout: magic, version, row count, min/max viewedAt (epoch seconds), last id, then per column its offset,
+ * compressed length and raw length, followed by the column data.
+ */
+public final class ViewSegment {
+
+    private static final int MAGIC = 0x41565347; // "AVSG"
+    private static final int VERSION = 1;
+
+    private static final int COL_ID = 0;
+    private static final int COL_ARTICLE_ID = 1;
+    private static final int COL_USER_ID = 2;
+    private static final int COL_VIEWED_AT = 3;
+    private static final int COL_IP_ADDRESS = 4;
+    private static final int COL_USER_AGENT = 5;
+    private static final int COLUMNS = 6;
+
+    private static final int HEADER_BYTES = 4 + 4 + 4 + 8 + 8 + 8 + COLUMNS * (8 + 4 + 4);
+
+    private final Path file;
+    private final MappedByteBuffer data;
+    private final int rowCount;
+    private final long minViewedAt;
+    private final long maxViewedAt;
+    private final long lastId;
+    private final long[] offsets = new long[COLUMNS];
+    private final int[] compressedLengths = new int[COLUMNS];
+    private final int[] rawLengths = new int[COLUMNS];
+
+    private ViewSegment(Path file, MappedByteBuffer data) {
+        this.file = file;
+        this.data = data;
+        ByteBuffer header = data.duplicate();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IllegalStateException("Not a view segment: " + file);
+        }
+        this.rowCount = header.getInt();
+        this.minViewedAt = header.getLong();
+        this.maxViewedAt = header.getLong();
+        this.lastId = header.getLong();
+        for (int i = 0; i < COLUMNS; i++) {
+            offsets[i] = header.getLong();
+            compressedLengths[i] = header.getInt();
+            rawLengths[i] = header.getInt();
+        }
+    }
+
+    /**
+     * Memory-map an existing segment file
+     */
+    public static ViewSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new ViewSegment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Write rows, which must be sorted by (viewedAt, id), to a new segment file and force it to disk
+     */
+    public static void write(Path file, List<ArticleView> rows) throws IOException {
+        if (rows.isEmpty()) {
+            throw new IllegalArgumentException("Empty segment");
+        }
+        Encoder ids = new Encoder();
+        Encoder articleIds = new Encoder();
+        Encoder userIds = new Encoder();
+        Encoder viewedAts = new Encoder();
+        Dictionary ipAddresses = new Dictionary();
+        Dictionary userAgents = new Dictionary();
+
+        long previousId = 0;
+        long previousViewedAt = 0;
+        for (ArticleView row : rows) {
+            long viewedAt = epochSecond(row.getViewedAt());
+            ids.writeSigned(row.getId() - previousId);
+            articleIds.writeUnsigned(row.getArticleId());
+            userIds.writeUnsigned(row.getUserId() != null ? row.getUserId() + 1 : 0);
+            viewedAts.writeSigned(viewedAt - previousViewedAt);
+            ipAddresses.add(row.getIpAddress());
+            userAgents.add(row.getUserAgent());
+            previousId = row.getId();
+            previousViewedAt = viewedAt;
+        }
+
+        byte[][] raw = {ids.toByteArray(), articleIds.toByteArray(), userIds.toByteArray(),
+                viewedAts.toByteArray(), ipAddresses.toByteArray(), userAgents.toByteArray()};
+        byte[][] compressed = new byte[COLUMNS][];
+        for (int i = 0; i < COLUMNS; i++) {
+            compressed[i] = deflate(raw[i]);
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putInt(rows.size());
+        header.putLong(epochSecond(rows.get(0).getViewedAt()));
+        header.putLong(epochSecond(rows.get(rows.size() - 1).getViewedAt()));
+        header.putLong(rows.get(rows.size() - 1).getId());
+        long offset = HEADER_BYTES;
+        for (int i = 0; i < COLUMNS; i++) {
+            header.putLong(offset).putInt(compressed[i].length).putInt(raw[i].length);
+            offset += compressed[i].length;
+        }
+        header.flip();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            writeFully(channel, header);
+            for (byte[] column : compressed) {
+                writeFully(channel, ByteBuffer.wrap(column));
+            }
+            channel.force(true);
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public LocalDateTime getMinViewedAt() {
+        return dateTime(minViewedAt);
+    }
+
+    public LocalDateTime getMaxViewedAt() {
+        return dateTime(maxViewedAt);
+    }
+
+    /**
+     * ID of the last row, which is also the largest (viewedAt, id) key in the segment
+     */
+    public long getLastId() {
+        return lastId;
+    }
+
+    /**
+     * Whether any row may fall in [from, to)
+     */
+    public boolean overlaps(LocalDateTime from, LocalDateTime to) {
+        return maxViewedAt >= epochSecond(from) && minViewedAt < epochSecond(to);
+    }
+
+    /**
+     * Decode every row with viewedAt in [from, to)
+     */
+    public void scan(LocalDateTime from, LocalDateTime to, Consumer<ArticleView> consumer) {
+        if (!overlaps(from, to)) {
+            return;
+        }
+        long fromSecond = epochSecond(from);
+        long toSecond = epochSecond(to);
+        try (Decoder viewedAts = column(COL_VIEWED_AT);
+             Decoder ids = column(COL_ID);
+             Decoder articleIds = column(COL_ARTICLE_ID);
+             Decoder userIds = column(COL_USER_ID);
+             Decoder ipAddresses = column(COL_IP_ADDRESS);
+             Decoder userAgents = column(COL_USER_AGENT)) {
+            scan(fromSecond, toSecond, ids, articleIds, userIds, viewedAts, ipAddresses, userAgents, consumer);
+        }
+    }
+
+    private void scan(long fromSecond, long toSecond, Decoder ids, Decoder articleIds, Decoder userIds,
+                      Decoder viewedAts, Decoder ipAddresses, Decoder userAgents, Consumer<ArticleView> consumer) {
+        String[] ipDictionary = readDictionary(ipAddresses);
+        String[] userAgentDictionary = readDictionary(userAgents);
+        long id = 0;
+        long viewedAt = 0;
+        for (int row = 0; row < rowCount; row++) {
+            id += ids.readSigned();
+            viewedAt += viewedAts.readSigned();
+            long articleId = articleIds.readUnsigned();
+            long userId = userIds.readUnsigned();
+            int ip = (int) ipAddresses.readUnsigned();
+            int userAgent = (int) userAgents.readUnsigned();
+            if (viewedAt < fromSecond) {
+                continue;
+            }
+            if (viewedAt >= toSecond) {
+                break;
+            }
+            ArticleView view = new ArticleView();
+            view.setId(id);
+            view.setArticleId(articleId);
+            view.setUserId(userId == 0 ? null : userId - 1);
+            view.setViewedAt(dateTime(viewedAt));
+            view.setIpAddress(ip == 0 ? null : ipDictionary[ip - 1]);
+            view.setUserAgent(userAgent == 0 ? null : userAgentDictionary[userAgent - 1]);
+            consumer.accept(view);
+        }
+    }
+
+    /**
+     * Add the segment's views in [from, to) per day and article to {@code counts}; only the timestamp and article
+     * ID columns are read
+     */
+    public void countByDayAndArticle(LocalDateTime from, LocalDateTime to, Map<LocalDate, LongLongHashMap> counts) {
+        if (!overlaps(from, to)) {
+            return;
+        }
+        long fromSecond = epochSecond(from);
+        long toSecond = epochSecond(to);
+        try (Decoder viewedAts = column(COL_VIEWED_AT);
+             Decoder articleIds = column(COL_ARTICLE_ID)) {
+            long viewedAt = 0;
+            for (int row = 0; row < rowCount; row++) {
+                viewedAt += viewedAts.readSigned();
+                long articleId = articleIds.readUnsigned();
+                if (viewedAt >= toSecond) {
+                    break;
+                }
+                if (viewedAt >= fromSecond) {
+                    counts.computeIfAbsent(dateTime(viewedAt).toLocalDate(), day -> new LongLongHashMap())
+                            .addTo(articleId, 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Add the segment's views in [from, to) per day to {@code counts}; only the timestamp column is read
+     */
+    public void countByDay(LocalDateTime from, LocalDateTime to, Map<LocalDate, Long> counts) {
+        if (!overlaps(from, to)) {
+            return;
+        }
+        long fromSecond = epochSecond(from);
+        long toSecond = epochSecond(to);
+        try (Decoder viewedAts = column(COL_VIEWED_AT)) {
+            long viewedAt = 0;
+            for (int row = 0; row < rowCount; row++) {
+                viewedAt += viewedAts.readSigned();
+                if (viewedAt >= toSecond) {
+                    break;
+                }
+                if (viewedAt >= fromSecond) {
+                    counts.merge(dateTime(viewedAt).toLocalDate(), 1L, Long::sum);
+                }
+            }
+        }
+    }
+
+    private Decoder column(int index) {
+        ByteBuffer compressed = data.duplicate();
+        compressed.position((int) offsets[index]).limit((int) offsets[index] + compressedLengths[index]);
+        return new Decoder(compressed.slice(), rawLengths[index], index);
+    }
+
+    /**
+     * Read a column's dictionary, leaving the decoder at the per-row indexes that follow it
+     */
+    private static String[] readDictionary(Decoder decoder) {
+        String[] values = new String[(int) decoder.readUnsigned()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = decoder.readString();
+        }
+        return values;
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static long epochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime dateTime(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+
+    private static class Encoder {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        void writeUnsigned(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+
+        void writeSigned(long value) {
+            writeUnsigned((value << 1) ^ (value >> 63));
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeUnsigned(bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Dictionary-encoded string column: the distinct values, then one index per row (0 for null)
+     */
+    private static final class Dictionary {
+
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+        private final Encoder rows = new Encoder();
+
+        void add(String value) {
+            if (value == null) {
+                rows.writeUnsigned(0);
+                return;
+            }
+            Integer index = indexes.get(value);
+            if (index == null) {
+                values.add(value);
+                index = values.size();
+                indexes.put(value, index);
+            }
+            rows.writeUnsigned(index);
+        }
+
+        byte[] toByteArray() {
+            Encoder encoder = new Encoder();
+            encoder.writeUnsigned(values.size());
+            for (String value : values) {
+                encoder.writeString(value);
+            }
+            byte[] dictionary = encoder.toByteArray();
+            byte[] indexes = rows.toByteArray();
+            byte[] column = new byte[dictionary.length + indexes.length];
+            System.arraycopy(dictionary, 0, column, 0, dictionary.length);
+            System.arraycopy(indexes, 0, column, dictionary.length, indexes.length);
+            return column;
+        }
+    }
+
+    /**
+     * Reads a deflated column in order, inflating from the mapped slice into a small window as it goes
+     */
+    private final class Decoder implements AutoCloseable {
+
+        private static final int WINDOW_BYTES = 8192;
+
+        private final Inflater inflater = new Inflater();
+        private final byte[] window;
+        private final int column;
+        private int remaining;
+        private int position;
+        private int limit;
+
+        Decoder(ByteBuffer compressed, int rawLength, int column) {
+            this.window = new byte[Math.max(1, Math.min(WINDOW_BYTES, rawLength))];
+            this.remaining = rawLength;
+            this.column = column;
+            inflater.setInput(compressed);
+        }
+
+        long readUnsigned() {
+            long value = 0;
+            int shift = 0;
+            while (true) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+                shift += 7;
+            }
+        }
+
+        long readSigned() {
+            long raw = readUnsigned();
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+
+        String readString() {
+            int length = (int) readUnsigned();
+            if (limit - position >= length) {
+                String value = new String(window, position, length, StandardCharsets.UTF_8);
+                position += length;
+                return value;
+            }
+            byte[] bytes = new byte[length];
+            int copied = 0;
+            while (copied < length) {
+                if (position == limit) {
+                    fill();
+                }
+                int chunk = Math.min(length - copied, limit - position);
+                System.arraycopy(window, position, bytes, copied, chunk);
+                position += chunk;
+                copied += chunk;
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private byte readByte() {
+            if (position == limit) {
+                fill();
+            }
+            return window[position++];
+        }
+
+        private void fill() {
+            if (remaining == 0) {
+                throw new IllegalStateException("Truncated column " + column + " in " + file);
+            }
+            try {
+                int read = 0;
+                int wanted = Math.min(window.length, remaining);
+                while (read < wanted && !inflater.finished()) {
+                    int inflated = inflater.inflate(window, read, wanted - read);
+                    if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    read += inflated;
+                }
+                if (read == 0) {
+                    throw new IllegalStateException("Truncated column " + column + " in " + file);
+                }
+                remaining -= read;
+                position = 0;
+                limit = read;
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("Corrupt column " + column + " in " + file, e);
+            }
+        }
+
+        @Override
+        public void close() {
+            inflater.end();
+        }
+    }
+}
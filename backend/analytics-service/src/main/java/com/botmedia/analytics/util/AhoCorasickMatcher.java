@@ -0,0 +1,115 @@
+package com.botmedia.analytics.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Aho-Corasick Matcher
+ * Case-insensitive test for whether a text contains any of a fixed set of ASCII patterns, in one pass over the
+ * text. The automaton is compiled into a dense transition table with failure links already folded in, so
+ * matching is a single array lookup per character. Non-ASCII characters never match and reset to the root.
+ * Immutable and thread-safe once built.
+ */
+public final class AhoCorasickMatcher {
+
+    private static final int ALPHABET = 128;
+
+    private final int[] transitions;
+    private final boolean[] accepting;
+
+    public AhoCorasickMatcher(Collection<String> patterns) {
+        List<int[]> gotos = new ArrayList<>();
+        List<Boolean> outputs = new ArrayList<>();
+        gotos.add(newState());
+        outputs.add(false);
+
+        for (String pattern : patterns) {
+            String normalized = pattern.trim().toLowerCase(Locale.ROOT);
+            if (normalized.isEmpty()) {
+                continue;
+            }
+            int state = 0;
+            for (int i = 0; i < normalized.length(); i++) {
+                char c = normalized.charAt(i);
+                if (c >= ALPHABET) {
+                    throw new IllegalArgumentException("Pattern is not ASCII: " + pattern);
+                }
+                if (gotos.get(state)[c] < 0) {
+                    gotos.get(state)[c] = gotos.size();
+                    gotos.add(newState());
+                    outputs.add(false);
+                }
+                state = gotos.get(state)[c];
+            }
+            outputs.set(state, true);
+        }
+
+        // Breadth-first: each state's missing transitions follow its failure link, which is already complete
+        int states = gotos.size();
+        int[] failure = new int[states];
+        transitions = new int[states * ALPHABET];
+        accepting = new boolean[states];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ALPHABET; c++) {
+            int next = gotos.get(0)[c];
+            transitions[c] = Math.max(next, 0);
+            if (next > 0) {
+                queue.add(next);
+            }
+        }
+        accepting[0] = outputs.get(0);
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            accepting[state] = outputs.get(state) || accepting[failure[state]];
+            for (int c = 0; c < ALPHABET; c++) {
+                int next = gotos.get(state)[c];
+                if (next > 0) {
+                    failure[next] = transitions[failure[state] * ALPHABET + c];
+                    transitions[state * ALPHABET + c] = next;
+                    queue.add(next);
+                } else {
+                    transitions[state * ALPHABET + c] = transitions[failure[state] * ALPHABET + c];
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether {@code text} contains any pattern, ignoring ASCII case
+     */
+    public boolean matches(CharSequence text) {
+        if (accepting[0]) {
+            return true;
+        }
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= ALPHABET) {
+                state = 0;
+                continue;
+            }
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
+            state = transitions[state * ALPHABET + c];
+            if (accepting[state]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int stateCount() {
+        return accepting.length;
+    }
+
+    private static int[] newState() {
+        int[] next = new int[ALPHABET];
+        Arrays.fill(next, -1);
+        return next;
+    }
+}
@@ -0,0 +1,89 @@
+package com.botmedia.analytics.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom Filter
+ * Fixed-size Bloom filter over 64-bit hashes, sized for an expected number of insertions and a target
+ * false-positive rate. The bit count is rounded up to a power of two so probes are masked rather than divided,
+ * and the k probe positions come from double hashing a single 64-bit hash.
+ * Thread-safe: bits are set with CAS on an {@link AtomicLongArray}.
+ */
+public class BloomFilter {
+
+    private static final int MAX_WORDS = 1 << 26; // 512 MiB of bits
+
+    private final AtomicLongArray words;
+    private final long mask;
+    private final int hashes;
+
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("expectedInsertions must be positive and falsePositiveRate in (0, 1)");
+        }
+        double ln2 = Math.log(2);
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (ln2 * ln2));
+        long words = Math.min(MAX_WORDS, Math.max(1, Long.highestOneBit(Math.max(64, optimalBits) - 1) >>> 5));
+        this.words = new AtomicLongArray((int) words);
+        this.mask = words * 64 - 1;
+        this.hashes = Math.max(1, (int) Math.round((double) optimalBits / expectedInsertions * ln2));
+    }
+
+    /**
+     * Add a hash
+     * @return true if at least one bit was newly set, i.e. the hash was definitely not present before
+     */
+    public boolean put(long hash) {
+        long h2 = mix(hash) | 1;
+        boolean changed = false;
+        long probe = hash;
+        for (int i = 0; i < hashes; i++) {
+            long bit = probe & mask;
+            int index = (int) (bit >>> 6);
+            long flag = 1L << bit;
+            long word = words.get(index);
+            while ((word & flag) == 0) {
+                if (words.compareAndSet(index, word, word | flag)) {
+                    changed = true;
+                    break;
+                }
+                word = words.get(index);
+            }
+            probe += h2;
+        }
+        return changed;
+    }
+
+    public boolean mightContain(long hash) {
+        long h2 = mix(hash) | 1;
+        long probe = hash;
+        for (int i = 0; i < hashes; i++) {
+            long bit = probe & mask;
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+            probe += h2;
+        }
+        return true;
+    }
+
+    public long bitSize() {
+        return mask + 1;
+    }
+
+    public int hashCount() {
+        return hashes;
+    }
+
+    /**
+     * 64-bit finalizer from MurmurHash3, used to spread caller hashes and derive the probe stride
+     */
+    public static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,116 @@
+package com.botmedia.analytics.util;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * MPSC Ring Buffer
+ * Bounded lock-free queue for many producers and a single consumer. Each slot carries a sequence number
+ * (Vyukov's bounded queue), so producers claim slots with one CAS and never block; a full buffer makes
+ * {@link #offer} fail instead of waiting.
+ */
+public class MpscRingBuffer<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    public MpscRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.elements = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Approximate number of queued elements
+     */
+    public int size() {
+        return (int) Math.max(0, Math.min(tail.get() - head.get(), capacity()));
+    }
+
+    /**
+     * Enqueue without blocking; false if the buffer is full
+     */
+    public boolean offer(E element) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.lazySet(index, element);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                return false;
+            }
+            // Another producer claimed this slot first; retry with the new tail
+        }
+    }
+
+    /**
+     * Enqueue all elements in consecutive slots claimed with one CAS, or none if they do not all fit
+     */
+    public boolean offerAll(List<E> batch) {
+        int n = batch.size();
+        if (n == 0) {
+            return true;
+        }
+        if (n > capacity()) {
+            return false;
+        }
+        long position;
+        while (true) {
+            position = tail.get();
+            // The consumer frees slots in order, so if the last one is free all of them are
+            long diff = sequences.get((int) (position + n - 1) & mask) - (position + n - 1);
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + n)) {
+                    break;
+                }
+            } else if (diff < 0) {
+                return false;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            int index = (int) (position + i) & mask;
+            elements.lazySet(index, batch.get(i));
+            sequences.set(index, position + i + 1);
+        }
+        return true;
+    }
+
+    /**
+     * Move up to {@code max} elements into {@code target}; only one thread may drain
+     */
+    public int drainTo(List<E> target, int max) {
+        int drained = 0;
+        long position = head.get();
+        while (drained < max) {
+            int index = (int) position & mask;
+            if (sequences.get(index) != position + 1) {
+                break;
+            }
+            target.add(elements.get(index));
+            elements.lazySet(index, null);
+            sequences.set(index, position + mask + 1);
+            position++;
+            drained++;
+        }
+        head.set(position);
+        return drained;
+    }
+}
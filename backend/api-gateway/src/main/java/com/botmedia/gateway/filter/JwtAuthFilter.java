@@ -35,6 +35,7 @@ public class JwtAuthFilter implements GlobalFilter, Ordered {
 
     private final AntPathMatcher pathMatcher = new AntPathMatcher();
 
+    // Entries may be prefixed with a method, e.g. "GET /path", to open only that method
     private static final List<String> WHITE_LIST = Arrays.asList(
             "/api/v1/users/login",
             "/api/v1/users/register",
@@ -46,6 +47,8 @@ public class JwtAuthFilter implements GlobalFilter, Ordered {
             "/api/v1/products",
             "/api/v1/products/{id}",
             "/api/v1/categories",
+            "GET /api/v1/media/objects/**",
+            "PUT /api/v1/media/objects/**",
             "/actuator/**"
     );
 
@@ -55,7 +58,7 @@ public class JwtAuthFilter implements GlobalFilter, Ordered {
         String path = request.getPath().value();
 
         // Skip auth for whitelisted paths
-        if (isWhiteListed(path)) {
+        if (isWhiteListed(request.getMethodValue(), path)) {
             return chain.filter(exchange);
         }
 
@@ -87,8 +90,14 @@ public class JwtAuthFilter implements GlobalFilter, Ordered {
         }
     }
 
-    private boolean isWhiteListed(String path) {
-        return WHITE_LIST.stream().anyMatch(pattern -> pathMatcher.match(pattern, path));
+    private boolean isWhiteListed(String method, String path) {
+        return WHITE_LIST.stream().anyMatch(entry -> {
+            int space = entry.indexOf(' ');
+            if (space < 0) {
+                return pathMatcher.match(entry, path);
+            }
+            return entry.substring(0, space).equals(method) && pathMatcher.match(entry.substring(space + 1), path);
+        });
     }
 
     private Mono<Void> unauthorized(ServerWebExchange exchange, String message) {
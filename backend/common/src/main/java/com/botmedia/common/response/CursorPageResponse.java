@@ -0,0 +1,30 @@
+package com.botmedia.common.response;
+
+import java.io.Serializable;
+import java.util.List;
+
+public class CursorPageResponse<T> implements Serializable {
+
+    private List<T> records;
+    private long size;
+    private String nextCursor;
+    private boolean hasMore;
+
+    public List<T> getRecords() { return records; }
+    public void setRecords(List<T> records) { this.records = records; }
+    public long getSize() { return size; }
+    public void setSize(long size) { this.size = size; }
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+
+    public static <T> CursorPageResponse<T> of(List<T> records, long size, String nextCursor) {
+        CursorPageResponse<T> response = new CursorPageResponse<>();
+        response.setRecords(records);
+        response.setSize(size);
+        response.setNextCursor(nextCursor);
+        response.setHasMore(nextCursor != null);
+        return response;
+    }
+}
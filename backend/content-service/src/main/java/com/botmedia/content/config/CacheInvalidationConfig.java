@@ -0,0 +1,35 @@
+package com.botmedia.content.config;
+
+import com.botmedia.content.service.impl.ArticleCache;
+import com.botmedia.content.service.impl.ArticleSearchIndex;
+import com.botmedia.content.service.impl.CategoryTreeCache;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * Subscribes every instance to the cache invalidation channels so in-memory state is dropped everywhere, and to
+ * the search channel so every local search index picks up article changes
+ */
+@Configuration
+public class CacheInvalidationConfig {
+
+    public static final String ARTICLE_CHANNEL = "content:article:invalidate";
+    public static final String CATEGORY_CHANNEL = "content:category:invalidate";
+    public static final String SEARCH_CHANNEL = "content:search:changed";
+
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                            ArticleCache articleCache,
+                                                                            CategoryTreeCache categoryTreeCache,
+                                                                            ArticleSearchIndex articleSearchIndex) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(articleCache, new ChannelTopic(ARTICLE_CHANNEL));
+        container.addMessageListener(categoryTreeCache, new ChannelTopic(CATEGORY_CHANNEL));
+        container.addMessageListener(articleSearchIndex, new ChannelTopic(SEARCH_CHANNEL));
+        return container;
+    }
+}
@@ -2,13 +2,28 @@ package com.botmedia.content.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.botmedia.common.response.ApiResponse;
+import com.botmedia.common.response.CursorPageResponse;
+import com.botmedia.common.response.PageResponse;
 import com.botmedia.content.dto.ArticleCreateRequest;
+import com.botmedia.content.dto.ArticleSearchHit;
 import com.botmedia.content.dto.ArticleUpdateRequest;
 import com.botmedia.content.dto.ArticleVO;
 import com.botmedia.content.service.ArticleService;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/v1/articles")
@@ -21,20 +36,84 @@ public class ArticleController {
     }
 
     @GetMapping
-    public ApiResponse<IPage<ArticleVO>> listArticles(
+    public MappingJacksonValue listArticles(
             @RequestParam(defaultValue = "1") long current,
             @RequestParam(defaultValue = "10") long size,
             @RequestParam(required = false) Integer status,
-            @RequestParam(required = false) Long categoryId) {
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) Set<String> fields) {
         
         IPage<ArticleVO> articles = articleService.listArticles(current, size, status, categoryId);
-        return ApiResponse.success(articles);
+        return withFields(ApiResponse.success(articles), fields);
+    }
+
+    @GetMapping("/cursor")
+    public MappingJacksonValue listArticlesByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") long size,
+            @RequestParam(required = false) Integer status,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) Set<String> fields) {
+
+        CursorPageResponse<ArticleVO> articles = articleService.listArticlesByCursor(cursor, size, status, categoryId);
+        return withFields(ApiResponse.success(articles), fields);
+    }
+
+    @GetMapping("/search")
+    public ApiResponse<PageResponse<ArticleSearchHit>> searchArticles(
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "1") long current,
+            @RequestParam(defaultValue = "10") long size,
+            @RequestParam(required = false) Integer status,
+            @RequestParam(required = false) Long categoryId) {
+
+        PageResponse<ArticleSearchHit> hits = articleService.searchArticles(query, status, categoryId, current, size);
+        return ApiResponse.success(hits);
     }
 
+    @PostMapping("/search/reindex")
+    public ApiResponse<Void> reindexArticles() {
+        articleService.reindexArticles();
+        return ApiResponse.success("Reindex started", null);
+    }
+
+    /**
+     * Bulk import from an NDJSON body; results are streamed back as NDJSON, one line per input line
+     */
+    @PostMapping(value = "/bulk", consumes = {"application/x-ndjson", MediaType.TEXT_PLAIN_VALUE})
+    public void importArticles(
+            @RequestHeader("X-User-Id") Long userId,
+            @RequestParam(defaultValue = "false") boolean dryRun,
+            @RequestParam(required = false) Integer chunkSize,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        articleService.importArticles(userId, request.getInputStream(), response.getOutputStream(), dryRun, chunkSize);
+    }
+
+    /**
+     * Conditional GET: the ETag comes from the cached article's version, so a client holding the current
+     * version gets a 304 without the article being assembled or serialized. There is no Last-Modified
+     * validator: updated_at has one-second resolution, so an edit in the same second would go unnoticed.
+     * The view count is not part of the validator; a revalidated view is still counted.
+     */
     @GetMapping("/{id}")
-    public ApiResponse<ArticleVO> getArticle(@PathVariable Long id) {
+    public MappingJacksonValue getArticle(
+            @PathVariable Long id,
+            @RequestParam(required = false) Set<String> fields,
+            ServletWebRequest webRequest) {
+
+        String version = articleService.getArticleVersion(id);
+        webRequest.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+        if (webRequest.checkNotModified(articleETag(id, version, fields))) {
+            articleService.recordView(id);
+            return null;
+        }
+
         ArticleVO article = articleService.getArticle(id);
-        return ApiResponse.success(article);
+        return withFields(ApiResponse.success(article), fields);
     }
 
     @PostMapping
@@ -66,4 +145,27 @@ public class ArticleController {
         articleService.deleteArticle(id);
         return ApiResponse.success(null);
     }
+
+    /**
+     * Strong ETag for one representation of an article; a sparse fieldset is a different representation
+     */
+    private static String articleETag(Long id, String version, Set<String> fields) {
+        String etag = "\"a" + id + "-" + version;
+        if (fields != null && !fields.isEmpty()) {
+            etag += "-" + Integer.toHexString(fields.hashCode());
+        }
+        return etag + "\"";
+    }
+
+    /**
+     * Restrict serialized ArticleVOs to the requested fields (comma-separated fields= parameter)
+     */
+    private MappingJacksonValue withFields(ApiResponse<?> response, Set<String> fields) {
+        SimpleBeanPropertyFilter filter = fields == null || fields.isEmpty()
+                ? SimpleBeanPropertyFilter.serializeAll()
+                : SimpleBeanPropertyFilter.filterOutAllExcept(fields);
+        MappingJacksonValue value = new MappingJacksonValue(response);
+        value.setFilters(new SimpleFilterProvider().addFilter(ArticleVO.FIELD_FILTER, filter));
+        return value;
+    }
 }
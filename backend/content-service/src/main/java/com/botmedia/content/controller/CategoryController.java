@@ -4,7 +4,10 @@ import com.botmedia.common.response.ApiResponse;
 import com.botmedia.content.dto.CategoryRequest;
 import com.botmedia.content.dto.CategoryVO;
 import com.botmedia.content.service.CategoryService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import javax.validation.Valid;
 import java.util.List;
@@ -19,12 +22,27 @@ public class CategoryController {
         this.categoryService = categoryService;
     }
 
+    /**
+     * Conditional GET keyed on the category tree fingerprint; an unchanged tree is answered with 304
+     */
     @GetMapping
-    public ApiResponse<List<CategoryVO>> listCategories() {
+    public ApiResponse<List<CategoryVO>> listCategories(ServletWebRequest webRequest) {
+        if (notModified(webRequest, "tree")) {
+            return null;
+        }
         List<CategoryVO> categories = categoryService.listCategories();
         return ApiResponse.success(categories);
     }
 
+    @GetMapping("/{id}/descendants")
+    public ApiResponse<List<Long>> getDescendantIds(@PathVariable Long id, ServletWebRequest webRequest) {
+        if (notModified(webRequest, "d" + id)) {
+            return null;
+        }
+        List<Long> ids = categoryService.getDescendantIds(id);
+        return ApiResponse.success(ids);
+    }
+
     @PostMapping
     public ApiResponse<CategoryVO> createCategory(@Valid @RequestBody CategoryRequest request) {
         CategoryVO category = categoryService.createCategory(request);
@@ -45,4 +63,10 @@ public class CategoryController {
         categoryService.deleteCategory(id);
         return ApiResponse.success(null);
     }
+
+    private boolean notModified(ServletWebRequest webRequest, String resource) {
+        webRequest.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+        String etag = "\"c-" + resource + "-" + Long.toHexString(categoryService.getTreeFingerprint()) + "\"";
+        return webRequest.checkNotModified(etag);
+    }
 }
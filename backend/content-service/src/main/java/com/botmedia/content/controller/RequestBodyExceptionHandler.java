@@ -0,0 +1,39 @@
+package com.botmedia.content.controller;
+
+import com.botmedia.common.response.ApiResponse;
+import com.botmedia.content.filter.MalformedRequestBodyException;
+import com.botmedia.content.filter.RequestBodyTooLargeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Request body errors raised by the content service's own filters. Runs ahead of the shared
+ * GlobalExceptionHandler, whose catch-all would turn them into 500s; handlers also match when the exception is
+ * the cause of another, such as a message converter failure.
+ */
+@RestControllerAdvice
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestBodyExceptionHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestBodyExceptionHandler.class);
+
+    @ExceptionHandler(RequestBodyTooLargeException.class)
+    @ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+    public ApiResponse<Void> handleBodyTooLarge(RequestBodyTooLargeException e) {
+        log.warn("Rejected request body: {}", e.getMessage());
+        return ApiResponse.error(HttpStatus.PAYLOAD_TOO_LARGE.value(), e.getMessage());
+    }
+
+    @ExceptionHandler(MalformedRequestBodyException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ApiResponse<Void> handleMalformedBody(MalformedRequestBodyException e) {
+        log.warn("Rejected request body: {}", e.getMessage());
+        return ApiResponse.error(HttpStatus.BAD_REQUEST.value(), "Malformed gzip body");
+    }
+}
@@ -0,0 +1,90 @@
+package com.botmedia.content.dto;
+
+import java.time.LocalDateTime;
+
+public class ArticleSearchHit {
+
+    private Long id;
+    private String title;
+    private String summary;
+    private Long categoryId;
+    private Integer status;
+    private LocalDateTime createdAt;
+    private Float score;
+
+    // Matching fragments with hits wrapped in <em>, null when the field did not match
+    private String titleHighlight;
+    private String contentHighlight;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getSummary() {
+        return summary;
+    }
+
+    public void setSummary(String summary) {
+        this.summary = summary;
+    }
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(Long categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    public Integer getStatus() {
+        return status;
+    }
+
+    public void setStatus(Integer status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Float getScore() {
+        return score;
+    }
+
+    public void setScore(Float score) {
+        this.score = score;
+    }
+
+    public String getTitleHighlight() {
+        return titleHighlight;
+    }
+
+    public void setTitleHighlight(String titleHighlight) {
+        this.titleHighlight = titleHighlight;
+    }
+
+    public String getContentHighlight() {
+        return contentHighlight;
+    }
+
+    public void setContentHighlight(String contentHighlight) {
+        this.contentHighlight = contentHighlight;
+    }
+}
@@ -0,0 +1,17 @@
+package com.botmedia.content.dto;
+
+/**
+ * A tag joined to the article it is attached to, as returned by the batched article_tags lookup
+ */
+public class ArticleTagRow extends TagVO {
+
+    private Long articleId;
+
+    public Long getArticleId() {
+        return articleId;
+    }
+
+    public void setArticleId(Long articleId) {
+        this.articleId = articleId;
+    }
+}
@@ -1,10 +1,18 @@
 package com.botmedia.content.dto;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
+
 import java.time.LocalDateTime;
 import java.util.List;
 
+@JsonFilter(ArticleVO.FIELD_FILTER)
 public class ArticleVO {
 
+    /**
+     * Jackson filter used for the sparse fieldset (fields=) parameter; serializes everything when not set
+     */
+    public static final String FIELD_FILTER = "articleFields";
+
     private Long id;
     private String title;
     private String summary;
@@ -0,0 +1,63 @@
+package com.botmedia.content.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Outcome of one NDJSON line of a bulk article import
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkImportResult {
+
+    private long line;
+    private boolean success;
+    private Long id;
+    private String error;
+
+    public static BulkImportResult ok(long line, Long id) {
+        BulkImportResult result = new BulkImportResult();
+        result.setLine(line);
+        result.setSuccess(true);
+        result.setId(id);
+        return result;
+    }
+
+    public static BulkImportResult failed(long line, String error) {
+        BulkImportResult result = new BulkImportResult();
+        result.setLine(line);
+        result.setSuccess(false);
+        result.setError(error);
+        return result;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public void setLine(long line) {
+        this.line = line;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
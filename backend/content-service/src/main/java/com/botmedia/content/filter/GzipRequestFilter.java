@@ -0,0 +1,249 @@
+package com.botmedia.content.filter;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Accepts request bodies sent with Content-Encoding: gzip, so editors can upload large article content compressed.
+ * The inflated size is capped to guard against decompression bombs; reading past the cap throws
+ * {@link RequestBodyTooLargeException}, which is answered with 413. A corrupt or truncated body is answered with 400,
+ * here when its header is unreadable and through {@link MalformedRequestBodyException} when it fails mid-read.
+ */
+@Component
+public class GzipRequestFilter extends OncePerRequestFilter {
+
+    private static final String BULK_IMPORT_PATH = "/api/v1/articles/bulk";
+
+    private final long maxInflatedBytes;
+    private final long maxBulkImportInflatedBytes;
+
+    public GzipRequestFilter(@Value("${content.request.max-inflated-bytes:20971520}") long maxInflatedBytes,
+                             @Value("${content.bulk-import.max-inflated-bytes:1073741824}") long maxBulkImportInflatedBytes) {
+        this.maxInflatedBytes = maxInflatedBytes;
+        this.maxBulkImportInflatedBytes = maxBulkImportInflatedBytes;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"gzip".equalsIgnoreCase(request.getHeader(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        GZIPInputStream inflated;
+        try {
+            inflated = new GZIPInputStream(request.getInputStream());
+        } catch (ZipException | EOFException e) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "Malformed gzip body");
+            return;
+        }
+        chain.doFilter(new InflatedRequest(request, new LimitedInputStream(inflated, limitFor(request))), response);
+    }
+
+    /**
+     * Bulk imports are streamed line by line rather than buffered, so they get a much higher cap than other bodies
+     */
+    private long limitFor(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        boolean bulkImport = "POST".equals(request.getMethod()) && BULK_IMPORT_PATH.equals(path);
+        return bulkImport ? maxBulkImportInflatedBytes : maxInflatedBytes;
+    }
+
+    private static final class InflatedRequest extends HttpServletRequestWrapper {
+
+        private final ServletInputStream body;
+
+        private InflatedRequest(HttpServletRequest request, InputStream body) {
+            super(request);
+            this.body = new InflatedInputStream(request, body);
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            return body;
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            Charset charset = getCharacterEncoding() != null
+                    ? Charset.forName(getCharacterEncoding()) : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(body, charset));
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return isStrippedHeader(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return isStrippedHeader(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
+
+        private static boolean isStrippedHeader(String name) {
+            return HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name) || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name);
+        }
+    }
+
+    /**
+     * The inflated body. Inflating needs blocking reads of the compressed body, so the stream always reports
+     * itself ready; in async mode a read listener is driven from a container thread and its reads block there.
+     */
+    private static final class InflatedInputStream extends ServletInputStream {
+
+        private final HttpServletRequest request;
+        private final InputStream body;
+        private volatile boolean finished;
+        private ReadListener readListener;
+
+        private InflatedInputStream(HttpServletRequest request, InputStream body) {
+            this.request = request;
+            this.body = body;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b;
+            try {
+                b = body.read();
+            } catch (ZipException | EOFException e) {
+                throw new MalformedRequestBodyException(e);
+            }
+            if (b < 0) {
+                finished = true;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n;
+            try {
+                n = body.read(b, off, len);
+            } catch (ZipException | EOFException e) {
+                throw new MalformedRequestBodyException(e);
+            }
+            if (n < 0) {
+                finished = true;
+            }
+            return n;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener listener) {
+            if (listener == null) {
+                throw new NullPointerException("ReadListener");
+            }
+            if (!request.isAsyncStarted()) {
+                throw new IllegalStateException("Non-blocking reads require async processing to be started");
+            }
+            if (readListener != null) {
+                throw new IllegalStateException("ReadListener already set");
+            }
+            readListener = listener;
+            request.getAsyncContext().start(() -> {
+                try {
+                    // isReady stays true, so the listener reads until it stops or the body ends
+                    if (!finished) {
+                        listener.onDataAvailable();
+                    }
+                    if (finished) {
+                        listener.onAllDataRead();
+                    }
+                } catch (Throwable t) {
+                    listener.onError(t);
+                }
+            });
+        }
+
+        @Override
+        public void close() throws IOException {
+            body.close();
+        }
+    }
+
+    private static final class LimitedInputStream extends InputStream {
+
+        private final InputStream delegate;
+        private final long limit;
+        private long count;
+
+        private LimitedInputStream(InputStream delegate, long limit) {
+            this.delegate = delegate;
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = delegate.read();
+            if (b >= 0) {
+                advance(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = delegate.read(b, off, len);
+            if (n > 0) {
+                advance(n);
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        private void advance(int n) throws IOException {
+            count += n;
+            if (count > limit) {
+                throw new RequestBodyTooLargeException(limit);
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.botmedia.content.filter;
+
+import java.io.IOException;
+
+/**
+ * Thrown while reading a compressed request body that turns out to be corrupt or truncated; answered with
+ * 400 Bad Request
+ */
+public class MalformedRequestBodyException extends IOException {
+
+    public MalformedRequestBodyException(IOException cause) {
+        super("Malformed gzip body: " + cause.getMessage(), cause);
+    }
+}
@@ -0,0 +1,14 @@
+package com.botmedia.content.filter;
+
+import java.io.IOException;
+
+/**
+ * Thrown while reading a compressed request body once it inflates past the configured cap; answered with
+ * 413 Payload Too Large
+ */
+public class RequestBodyTooLargeException extends IOException {
+
+    public RequestBodyTooLargeException(long limit) {
+        super("Inflated request body exceeds " + limit + " bytes");
+    }
+}
@@ -3,7 +3,21 @@ package com.botmedia.content.repository;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.botmedia.content.entity.Article;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+import java.util.Map;
 
 @Mapper
 public interface ArticleMapper extends BaseMapper<Article> {
+
+    /**
+     * Add buffered view count deltas (article ID -> delta) in a single UPDATE
+     */
+    int incrementViewCounts(@Param("deltas") Map<Long, Long> deltas);
+
+    /**
+     * Insert several articles with one multi-row INSERT; generated IDs are written back to the entities
+     */
+    int insertBatch(@Param("articles") List<Article> articles);
 }
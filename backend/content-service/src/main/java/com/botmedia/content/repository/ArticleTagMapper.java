@@ -1,10 +1,12 @@
 package com.botmedia.content.repository;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.botmedia.content.dto.ArticleTagRow;
 import com.botmedia.content.entity.ArticleTag;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
@@ -19,4 +21,24 @@ public interface ArticleTagMapper extends BaseMapper<ArticleTag> {
      * Find all tag IDs for an article
      */
     List<Long> findTagIdsByArticleId(@Param("articleId") Long articleId);
+
+    /**
+     * Attach several tags to an article with one multi-row INSERT
+     */
+    int insertBatch(@Param("articleId") Long articleId, @Param("tagIds") Collection<Long> tagIds);
+
+    /**
+     * Insert (article, tag) pairs for any number of articles with one multi-row INSERT
+     */
+    int insertPairs(@Param("pairs") Collection<ArticleTag> pairs);
+
+    /**
+     * Detach the given tags from an article
+     */
+    int deleteByArticleIdAndTagIds(@Param("articleId") Long articleId, @Param("tagIds") Collection<Long> tagIds);
+
+    /**
+     * Find the tags of several articles in one query (article_tags joined to tags)
+     */
+    List<ArticleTagRow> findTagsByArticleIds(@Param("articleIds") Collection<Long> articleIds);
 }
@@ -1,10 +1,17 @@
 package com.botmedia.content.service;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.botmedia.common.response.CursorPageResponse;
+import com.botmedia.common.response.PageResponse;
 import com.botmedia.content.dto.ArticleCreateRequest;
+import com.botmedia.content.dto.ArticleSearchHit;
 import com.botmedia.content.dto.ArticleUpdateRequest;
 import com.botmedia.content.dto.ArticleVO;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
 public interface ArticleService {
 
     /**
@@ -18,15 +25,48 @@ public interface ArticleService {
     ArticleVO updateArticle(Long id, ArticleUpdateRequest request);
 
     /**
-     * Get article by ID (increments view count)
+     * Get article by ID (increments view count, flushed to the database asynchronously)
      */
     ArticleVO getArticle(Long id);
 
     /**
-     * List articles with pagination and filters
+     * Opaque version of an article for conditional GETs, served from the article cache. It changes with any
+     * edit to the article, its tags or the category tree, but not with its view count.
+     */
+    String getArticleVersion(Long id);
+
+    /**
+     * Count a view of an article that was not re-sent because the client's copy is current
+     */
+    void recordView(Long id);
+
+    /**
+     * List articles with pagination and filters (without content)
      */
     IPage<ArticleVO> listArticles(long current, long size, Integer status, Long categoryId);
 
+    /**
+     * List articles (without content) newest first by seeking on (created_at, id) instead of OFFSET; no total count
+     */
+    CursorPageResponse<ArticleVO> listArticlesByCursor(String cursor, long size, Integer status, Long categoryId);
+
+    /**
+     * Full-text search over title, summary and content with highlighted fragments
+     */
+    PageResponse<ArticleSearchHit> searchArticles(String query, Integer status, Long categoryId, long current, long size);
+
+    /**
+     * Rebuild the search index from the articles table in the background
+     */
+    void reindexArticles();
+
+    /**
+     * Import NDJSON articles (one ArticleCreateRequest per line) in chunked batch inserts,
+     * writing one NDJSON result per input line to {@code out}; dry run only validates
+     */
+    void importArticles(Long authorId, InputStream in, OutputStream out, boolean dryRun, Integer chunkSize)
+            throws IOException;
+
     /**
      * Publish an article
      */
@@ -22,6 +22,21 @@ public interface CategoryService {
      */
     List<CategoryVO> listCategories();
 
+    /**
+     * Fingerprint of the current category tree, for conditional GETs; changes whenever any category does
+     */
+    long getTreeFingerprint();
+
+    /**
+     * Current name of a category, from the category tree; null if it is not in the tree
+     */
+    String getCategoryName(Long id);
+
+    /**
+     * IDs of a category and all of its descendants
+     */
+    List<Long> getDescendantIds(Long id);
+
     /**
      * Delete a category
      */
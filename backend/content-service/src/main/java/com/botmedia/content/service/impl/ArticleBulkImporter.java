@@ -0,0 +1,274 @@
+package com.botmedia.content.service.impl;
+
+import com.botmedia.common.exception.BusinessException;
+import com.botmedia.content.dto.ArticleCreateRequest;
+import com.botmedia.content.dto.BulkImportResult;
+import com.botmedia.content.entity.Article;
+import com.botmedia.content.entity.ArticleTag;
+import com.botmedia.content.entity.Category;
+import com.botmedia.content.entity.Tag;
+import com.botmedia.content.repository.ArticleMapper;
+import com.botmedia.content.repository.ArticleTagMapper;
+import com.botmedia.content.repository.CategoryMapper;
+import com.botmedia.content.repository.TagMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Streams NDJSON article imports: lines are parsed and validated one at a time and written in chunks,
+ * each chunk in its own transaction with one multi-row INSERT for articles and one for article_tags.
+ * One result line is streamed back per input line as soon as its chunk is done. If the body cannot be read to
+ * the end, the committed chunks stand and the remaining lines are reported as not imported.
+ */
+@Component
+public class ArticleBulkImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(ArticleBulkImporter.class);
+
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final ArticleMapper articleMapper;
+    private final ArticleTagMapper articleTagMapper;
+    private final CategoryMapper categoryMapper;
+    private final TagMapper tagMapper;
+    private final ArticleSearchIndex articleSearchIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int defaultChunkSize;
+    private final int maxChunkSize;
+
+    public ArticleBulkImporter(ArticleMapper articleMapper, ArticleTagMapper articleTagMapper,
+                               CategoryMapper categoryMapper, TagMapper tagMapper,
+                               ArticleSearchIndex articleSearchIndex, TransactionTemplate transactionTemplate,
+                               ObjectMapper objectMapper, Validator validator,
+                               @Value("${content.bulk-import.chunk-size:500}") int defaultChunkSize,
+                               @Value("${content.bulk-import.max-chunk-size:2000}") int maxChunkSize) {
+        this.articleMapper = articleMapper;
+        this.articleTagMapper = articleTagMapper;
+        this.categoryMapper = categoryMapper;
+        this.tagMapper = tagMapper;
+        this.articleSearchIndex = articleSearchIndex;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.defaultChunkSize = defaultChunkSize;
+        this.maxChunkSize = maxChunkSize;
+    }
+
+    public void importArticles(Long authorId, InputStream in, OutputStream out, boolean dryRun, Integer chunkSize)
+            throws IOException {
+        int limit = chunkSize != null ? Math.max(1, Math.min(chunkSize, maxChunkSize)) : defaultChunkSize;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+        List<PendingLine> chunk = new ArrayList<>(limit);
+        long lineNumber = 0;
+        String line;
+        while (true) {
+            try {
+                line = reader.readLine();
+            } catch (IOException e) {
+                abortUnreadable(chunk, lineNumber, e, out);
+                return;
+            }
+            if (line == null) {
+                break;
+            }
+            lineNumber++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+
+            ArticleCreateRequest request;
+            try {
+                request = objectMapper.readValue(line, ArticleCreateRequest.class);
+            } catch (JsonProcessingException e) {
+                write(out, BulkImportResult.failed(lineNumber, "Malformed JSON: " + e.getOriginalMessage()));
+                continue;
+            }
+
+            Set<ConstraintViolation<ArticleCreateRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                String message = violations.stream().map(ConstraintViolation::getMessage).collect(Collectors.joining(", "));
+                write(out, BulkImportResult.failed(lineNumber, message));
+                continue;
+            }
+
+            chunk.add(new PendingLine(lineNumber, request));
+            if (chunk.size() >= limit) {
+                processChunk(authorId, chunk, out, dryRun);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            processChunk(authorId, chunk, out, dryRun);
+        }
+        out.flush();
+    }
+
+    /**
+     * The body failed mid-stream (truncated, corrupt or over the inflated-size cap). Chunks already written stay
+     * committed and their results have been sent; the lines still pending are reported as not imported, so the
+     * caller can resume from the first of them.
+     */
+    private void abortUnreadable(List<PendingLine> pending, long lastLine, IOException e, OutputStream out)
+            throws IOException {
+        log.warn("Bulk import body unreadable after line {}: {}", lastLine, e.getMessage());
+        for (PendingLine line : pending) {
+            write(out, BulkImportResult.failed(line.lineNumber,
+                    "Not imported: request body unreadable after line " + lastLine));
+        }
+        write(out, BulkImportResult.failed(lastLine + 1, "Request body unreadable: " + e.getMessage()));
+        out.flush();
+    }
+
+    private void processChunk(Long authorId, List<PendingLine> chunk, OutputStream out, boolean dryRun)
+            throws IOException {
+        List<PendingLine> valid = checkReferences(chunk, out);
+        if (valid.isEmpty()) {
+            out.flush();
+            return;
+        }
+
+        if (dryRun) {
+            for (PendingLine pending : valid) {
+                write(out, BulkImportResult.ok(pending.lineNumber, null));
+            }
+            out.flush();
+            return;
+        }
+
+        try {
+            List<Article> articles = transactionTemplate.execute(status -> insertChunk(authorId, valid));
+            for (int i = 0; i < valid.size(); i++) {
+                write(out, BulkImportResult.ok(valid.get(i).lineNumber, articles.get(i).getId()));
+            }
+        } catch (RuntimeException e) {
+            log.error("Bulk import chunk of {} articles failed: {}", valid.size(), e.getMessage());
+            for (PendingLine pending : valid) {
+                write(out, BulkImportResult.failed(pending.lineNumber, "Chunk rolled back: " + e.getMessage()));
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Reject lines whose category or tags do not exist, with one IN query per table for the whole chunk
+     */
+    private List<PendingLine> checkReferences(List<PendingLine> chunk, OutputStream out) throws IOException {
+        Set<Long> categoryIds = new HashSet<>();
+        Set<Long> tagIds = new HashSet<>();
+        for (PendingLine pending : chunk) {
+            if (pending.request.getCategoryId() != null) {
+                categoryIds.add(pending.request.getCategoryId());
+            }
+            if (pending.request.getTagIds() != null) {
+                tagIds.addAll(pending.request.getTagIds());
+            }
+        }
+
+        Set<Long> knownCategories = categoryIds.isEmpty() ? new HashSet<>()
+                : categoryMapper.selectBatchIds(categoryIds).stream().map(Category::getId).collect(Collectors.toSet());
+        Set<Long> knownTags = tagIds.isEmpty() ? new HashSet<>()
+                : tagMapper.selectBatchIds(tagIds).stream().map(Tag::getId).collect(Collectors.toSet());
+
+        List<PendingLine> valid = new ArrayList<>(chunk.size());
+        for (PendingLine pending : chunk) {
+            Long categoryId = pending.request.getCategoryId();
+            List<Long> requestTags = pending.request.getTagIds();
+            if (categoryId != null && !knownCategories.contains(categoryId)) {
+                write(out, BulkImportResult.failed(pending.lineNumber, "Category not found: " + categoryId));
+            } else if (requestTags != null && !knownTags.containsAll(requestTags)) {
+                write(out, BulkImportResult.failed(pending.lineNumber, "Tag not found"));
+            } else {
+                valid.add(pending);
+            }
+        }
+        return valid;
+    }
+
+    private List<Article> insertChunk(Long authorId, List<PendingLine> chunk) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Article> articles = new ArrayList<>(chunk.size());
+        for (PendingLine pending : chunk) {
+            ArticleCreateRequest request = pending.request;
+            Article article = new Article();
+            article.setTitle(request.getTitle());
+            article.setSummary(request.getSummary());
+            article.setContent(request.getContent());
+            article.setCoverImage(request.getCoverImage());
+            article.setAuthorId(authorId);
+            article.setCategoryId(request.getCategoryId());
+            article.setStatus(request.getStatus() != null ? request.getStatus() : 0);
+            article.setIsFeatured(false);
+            article.setViewCount(0L);
+            article.setPublishedAt(article.getStatus() == 2 ? now : null);
+            article.setCreatedAt(now);
+            article.setUpdatedAt(now);
+            articles.add(article);
+        }
+        articleMapper.insertBatch(articles);
+
+        List<ArticleTag> pairs = new ArrayList<>();
+        for (int i = 0; i < articles.size(); i++) {
+            List<Long> tagIds = chunk.get(i).request.getTagIds();
+            if (tagIds == null) {
+                continue;
+            }
+            for (Long tagId : new LinkedHashSet<>(tagIds)) {
+                ArticleTag pair = new ArticleTag();
+                pair.setArticleId(articles.get(i).getId());
+                pair.setTagId(tagId);
+                pairs.add(pair);
+            }
+        }
+        if (!pairs.isEmpty()) {
+            articleTagMapper.insertPairs(pairs);
+        }
+
+        for (Article article : articles) {
+            if (article.getId() == null) {
+                throw new BusinessException("Generated article ID missing");
+            }
+        }
+        articleSearchIndex.indexAfterCommit(articles);
+        return articles;
+    }
+
+    private void write(OutputStream out, BulkImportResult result) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(result));
+        out.write(NEWLINE);
+    }
+
+    private static final class PendingLine {
+
+        private final long lineNumber;
+        private final ArticleCreateRequest request;
+
+        private PendingLine(long lineNumber, ArticleCreateRequest request) {
+            this.lineNumber = lineNumber;
+            this.request = request;
+        }
+    }
+}
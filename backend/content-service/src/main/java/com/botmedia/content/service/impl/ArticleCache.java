@@ -0,0 +1,226 @@
+package com.botmedia.content.service.impl;
+
+import com.botmedia.common.util.TransactionUtils;
+import com.botmedia.content.config.CacheInvalidationConfig;
+import com.botmedia.content.dto.ArticleVO;
+import com.botmedia.content.dto.TagVO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of assembled ArticleVOs: a small per-instance Caffeine tier in front of Redis.
+ * Writers invalidate through a Redis pub/sub channel so every instance drops its local copy.
+ * <p>
+ * The cached view count goes stale as views are flushed, so each article is cached together with the shared
+ * flushed-view total its row reflects, in the same Redis value. Views flushed by any instance since then are the
+ * difference from the current total. The total is read before and after loading the row, and the load is
+ * retried if a flush landed in between, since then it is unknown whether the row includes it.
+ */
+@Component
+public class ArticleCache implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(ArticleCache.class);
+
+    private static final String KEY_PREFIX = "content:article:";
+
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final ArticleViewCounter articleViewCounter;
+    private final Duration redisTtl;
+    private final Cache<Long, Entry> localCache;
+    private final Counter redisHits;
+    private final Counter redisMisses;
+    private final Counter invalidations;
+
+    public ArticleCache(StringRedisTemplate redisTemplate, ObjectMapper objectMapper,
+                        ArticleViewCounter articleViewCounter, MeterRegistry meterRegistry,
+                        @Value("${content.article-cache.local-max-size:1000}") long localMaxSize,
+                        @Value("${content.article-cache.local-ttl-seconds:60}") long localTtlSeconds,
+                        @Value("${content.article-cache.redis-ttl-seconds:600}") long redisTtlSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.articleViewCounter = articleViewCounter;
+        this.redisTtl = Duration.ofSeconds(redisTtlSeconds);
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(localTtlSeconds))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "article.local");
+        this.redisHits = Counter.builder("content.article.cache.redis").tag("result", "hit").register(meterRegistry);
+        this.redisMisses = Counter.builder("content.article.cache.redis").tag("result", "miss").register(meterRegistry);
+        this.invalidations = Counter.builder("content.article.cache.invalidations").register(meterRegistry);
+    }
+
+    /**
+     * Return a copy of the cached article, loading it from Redis or the loader on a miss.
+     * The view count is brought up to date with what this instance has counted since the entry was cached.
+     */
+    public ArticleVO get(Long id, Function<Long, ArticleVO> loader) {
+        Entry entry = entry(id, loader);
+
+        ArticleVO vo = new ArticleVO();
+        BeanUtils.copyProperties(entry.article, vo);
+        long base = vo.getViewCount() != null ? vo.getViewCount() : 0L;
+        long flushed = articleViewCounter.flushedViews(id);
+        long flushedSince = flushed >= 0 && entry.flushedMark >= 0 ? Math.max(0L, flushed - entry.flushedMark) : 0L;
+        vo.setViewCount(base + flushedSince + articleViewCounter.pendingViews(id));
+        return vo;
+    }
+
+    /**
+     * Hash of everything in the cached article but its view count, without copying it. Unlike updatedAt it
+     * covers tag changes and edits within the same second, and it is the same on every instance.
+     */
+    public long getFingerprint(Long id, Function<Long, ArticleVO> loader) {
+        return entry(id, loader).fingerprint;
+    }
+
+    /**
+     * Drop the article from every tier on every instance. Inside a transaction this happens after commit,
+     * so a concurrent reader cannot re-cache the pre-update row.
+     */
+    public void evict(Long id) {
+        TransactionUtils.afterCommit(() -> evictNow(id));
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Long id = Long.valueOf(new String(message.getBody(), StandardCharsets.UTF_8));
+        localCache.invalidate(id);
+    }
+
+    private Entry entry(Long id, Function<Long, ArticleVO> loader) {
+        return localCache.get(id, key -> {
+            CachedArticle cached = loadShared(key, loader);
+            return new Entry(cached.getArticle(), cached.getFlushedMark());
+        });
+    }
+
+    private void evictNow(Long id) {
+        invalidations.increment();
+        localCache.invalidate(id);
+        try {
+            redisTemplate.delete(KEY_PREFIX + id);
+            redisTemplate.convertAndSend(CacheInvalidationConfig.ARTICLE_CHANNEL, String.valueOf(id));
+        } catch (Exception e) {
+            log.warn("Failed to invalidate cached article {}: {}", id, e.getMessage());
+        }
+    }
+
+    private CachedArticle loadShared(Long id, Function<Long, ArticleVO> loader) {
+        String key = KEY_PREFIX + id;
+        try {
+            String json = redisTemplate.opsForValue().get(key);
+            if (json != null) {
+                CachedArticle cached = objectMapper.readValue(json, CachedArticle.class);
+                // Values written before the flushed mark was cached with the article have no article field
+                if (cached.getArticle() != null) {
+                    redisHits.increment();
+                    return cached;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to read cached article {}: {}", id, e.getMessage());
+        }
+        redisMisses.increment();
+
+        // The mark is cached for as long as the entry, up to the Redis TTL, so a flush between reading it and the
+        // row would be counted twice (mark first) or missed (mark last) for that long. Only a load with the same
+        // mark on both sides is known to match; if flushes keep landing, the later mark undercounts by at most
+        // the views flushed during the last row read.
+        CachedArticle cached = new CachedArticle();
+        long before = articleViewCounter.flushedViews(id);
+        for (int attempt = 1; ; attempt++) {
+            cached.setArticle(loader.apply(id));
+            long after = articleViewCounter.flushedViews(id);
+            cached.setFlushedMark(after);
+            if (after == before || attempt == MAX_LOAD_ATTEMPTS) {
+                break;
+            }
+            before = after;
+        }
+        try {
+            redisTemplate.opsForValue().set(key, objectMapper.writeValueAsString(cached), redisTtl);
+        } catch (Exception e) {
+            log.warn("Failed to cache article {}: {}", id, e.getMessage());
+        }
+        return cached;
+    }
+
+    private static long fingerprint(ArticleVO article) {
+        long fingerprint = 1125899906842597L;
+        fingerprint = 31 * fingerprint + Objects.hash(article.getId(), article.getTitle(), article.getSummary(),
+                article.getContent(), article.getCoverImage(), article.getAuthorId(), article.getAuthorName(),
+                article.getCategoryId(), article.getCategoryName(), article.getStatus(), article.getIsFeatured(),
+                article.getPublishedAt(), article.getCreatedAt(), article.getUpdatedAt());
+        if (article.getTags() != null) {
+            for (TagVO tag : article.getTags()) {
+                fingerprint = 31 * fingerprint + Objects.hash(tag.getId(), tag.getName(), tag.getSlug());
+            }
+        }
+        return fingerprint;
+    }
+
+    private static final class Entry {
+
+        private final ArticleVO article;
+
+        private final long fingerprint;
+
+        // flushedViews() as of the article's load; views flushed after that are not in its viewCount.
+        // -1 if Redis could not be read then, in which case none are added.
+        private final long flushedMark;
+
+        private Entry(ArticleVO article, long flushedMark) {
+            this.article = article;
+            this.fingerprint = fingerprint(article);
+            this.flushedMark = flushedMark;
+        }
+    }
+
+    /**
+     * What is stored in Redis: the article and its flushed-view mark, written and expired together
+     */
+    public static final class CachedArticle {
+
+        private ArticleVO article;
+        private long flushedMark;
+
+        public ArticleVO getArticle() {
+            return article;
+        }
+
+        public void setArticle(ArticleVO article) {
+            this.article = article;
+        }
+
+        public long getFlushedMark() {
+            return flushedMark;
+        }
+
+        public void setFlushedMark(long flushedMark) {
+            this.flushedMark = flushedMark;
+        }
+    }
+}
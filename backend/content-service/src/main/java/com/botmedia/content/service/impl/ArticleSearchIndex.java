@@ -0,0 +1,440 @@
+package com.botmedia.content.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.botmedia.common.exception.BusinessException;
+import com.botmedia.common.response.PageResponse;
+import com.botmedia.common.util.TransactionUtils;
+import com.botmedia.content.config.CacheInvalidationConfig;
+import com.botmedia.content.dto.ArticleSearchHit;
+import com.botmedia.content.entity.Article;
+import com.botmedia.content.repository.ArticleMapper;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.search.highlight.Highlighter;
+import org.apache.lucene.search.highlight.InvalidTokenOffsetsException;
+import org.apache.lucene.search.highlight.QueryScorer;
+import org.apache.lucene.search.highlight.SimpleFragmenter;
+import org.apache.lucene.search.highlight.SimpleHTMLEncoder;
+import org.apache.lucene.search.highlight.SimpleHTMLFormatter;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Embedded Lucene index over articles, stored on local disk.
+ * Each instance keeps its own index. After an article transaction commits, the IDs it touched are published on
+ * {@link CacheInvalidationConfig#SEARCH_CHANNEL}, and every instance, the writer included, reloads those rows and
+ * indexes them, or drops their documents if the rows are gone. Reloads run on a single thread, so the last one
+ * for an article always reflects its latest committed state. A message lost while Redis is unreachable leaves
+ * that instance stale until the next reindex.
+ * Documents store only the article id; a page of hits is loaded from the articles table, and highlights are cut
+ * from the loaded text, so the index never holds a second copy of article bodies.
+ * Searches go through a near-real-time SearcherManager that is refreshed every second, and the index is
+ * committed periodically and on shutdown.
+ */
+@Component
+public class ArticleSearchIndex implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(ArticleSearchIndex.class);
+
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_TITLE = "title";
+    private static final String FIELD_SUMMARY = "summary";
+    private static final String FIELD_CONTENT = "content";
+    private static final String FIELD_STATUS = "status";
+    private static final String FIELD_CATEGORY_ID = "categoryId";
+    private static final String FIELD_GENERATION = "generation";
+
+    // Deep pages cost a priority queue of offset + size entries, so paging stops here
+    private static final int MAX_RESULT_WINDOW = 10000;
+
+    private static final long SHUTDOWN_WAIT_SECONDS = 30;
+
+    private static final Set<String> ID_ONLY = Collections.singleton(FIELD_ID);
+
+    private static final String[] SEARCH_FIELDS = {FIELD_TITLE, FIELD_SUMMARY, FIELD_CONTENT};
+    private static final Map<String, Float> SEARCH_BOOSTS = new HashMap<>();
+
+    static {
+        SEARCH_BOOSTS.put(FIELD_TITLE, 3.0f);
+        SEARCH_BOOSTS.put(FIELD_SUMMARY, 2.0f);
+        SEARCH_BOOSTS.put(FIELD_CONTENT, 1.0f);
+    }
+
+    private final ArticleMapper articleMapper;
+    private final StringRedisTemplate redisTemplate;
+    private final String indexDir;
+    private final int reindexChunkSize;
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private final ExecutorService reindexExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "article-reindex");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService syncExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "article-index-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean reindexing = new AtomicBoolean(false);
+
+    // Articles synced while a reindex runs; the reindex may have overwritten them with rows it read earlier
+    private final Set<Long> syncedDuringReindex = ConcurrentHashMap.newKeySet();
+
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+
+    // Every document carries the generation it was written in; a full reindex bumps it and
+    // afterwards deletes documents from older generations (articles that no longer exist)
+    private volatile long generation;
+
+    public ArticleSearchIndex(ArticleMapper articleMapper, StringRedisTemplate redisTemplate,
+                              @Value("${content.search.index-dir:data/article-index}") String indexDir,
+                              @Value("${content.search.reindex-chunk-size:500}") int reindexChunkSize) {
+        this.articleMapper = articleMapper;
+        this.redisTemplate = redisTemplate;
+        this.indexDir = indexDir;
+        this.reindexChunkSize = reindexChunkSize;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        IndexWriterConfig config = new IndexWriterConfig(analyzer);
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        writer = new IndexWriter(FSDirectory.open(Paths.get(indexDir)), config);
+        searcherManager = new SearcherManager(writer, null);
+        generation = System.currentTimeMillis();
+
+        if (writer.getDocStats().numDocs == 0) {
+            log.info("Article search index at {} is empty, starting a full reindex", indexDir);
+            startReindex();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        // Let queued reloads finish, stop a reindex, and wait for both before the writer commits and closes
+        reindexExecutor.shutdownNow();
+        syncExecutor.shutdown();
+        try {
+            if (!reindexExecutor.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS)
+                    || !syncExecutor.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Search index writers still running after {} s, closing anyway", SHUTDOWN_WAIT_SECONDS);
+                syncExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        searcherManager.close();
+        writer.commit();
+        writer.close();
+    }
+
+    /**
+     * Add or replace the article's document on every instance once the surrounding transaction commits
+     */
+    public void indexAfterCommit(Article article) {
+        TransactionUtils.afterCommit(() -> publish(Collections.singletonList(article.getId())));
+    }
+
+    /**
+     * Add the articles' documents on every instance once the surrounding transaction commits, with one message
+     */
+    public void indexAfterCommit(List<Article> articles) {
+        List<Long> ids = articles.stream().map(Article::getId).collect(Collectors.toList());
+        TransactionUtils.afterCommit(() -> publish(ids));
+    }
+
+    /**
+     * Remove the article's document on every instance once the surrounding transaction commits
+     */
+    public void removeAfterCommit(Long articleId) {
+        TransactionUtils.afterCommit(() -> publish(Collections.singletonList(articleId)));
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        List<Long> ids = new ArrayList<>();
+        for (String id : body.split(",")) {
+            ids.add(Long.valueOf(id));
+        }
+        syncExecutor.execute(() -> sync(ids));
+    }
+
+    public PageResponse<ArticleSearchHit> search(String queryText, Integer status, Long categoryId,
+                                                 long current, long size) {
+        Query textQuery;
+        try {
+            textQuery = new MultiFieldQueryParser(SEARCH_FIELDS, analyzer, SEARCH_BOOSTS).parse(queryText);
+        } catch (ParseException e) {
+            throw BusinessException.badRequest("Invalid search query");
+        }
+
+        BooleanQuery.Builder builder = new BooleanQuery.Builder().add(textQuery, BooleanClause.Occur.MUST);
+        if (status != null) {
+            builder.add(IntPoint.newExactQuery(FIELD_STATUS, status), BooleanClause.Occur.FILTER);
+        }
+        if (categoryId != null) {
+            builder.add(LongPoint.newExactQuery(FIELD_CATEGORY_ID, categoryId), BooleanClause.Occur.FILTER);
+        }
+
+        if (current < 1 || size < 1 || size > MAX_RESULT_WINDOW || current - 1 > (MAX_RESULT_WINDOW - size) / size) {
+            throw BusinessException.badRequest("Search results are limited to the first " + MAX_RESULT_WINDOW + " hits");
+        }
+        int offset = (int) ((current - 1) * size);
+        IndexSearcher searcher = null;
+        try {
+            searcher = searcherManager.acquire();
+            TopScoreDocCollector collector = TopScoreDocCollector.create(offset + (int) size, Integer.MAX_VALUE);
+            searcher.search(builder.build(), collector);
+            TopDocs topDocs = collector.topDocs(offset, (int) size);
+
+            List<Long> ids = new ArrayList<>(topDocs.scoreDocs.length);
+            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                ids.add(Long.valueOf(searcher.storedFields().document(scoreDoc.doc, ID_ONLY).get(FIELD_ID)));
+            }
+            Map<Long, Article> articles = loadArticles(ids);
+
+            Highlighter titleHighlighter = highlighter(textQuery, FIELD_TITLE);
+            Highlighter contentHighlighter = highlighter(textQuery, FIELD_CONTENT);
+            List<ArticleSearchHit> hits = new ArrayList<>(ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                // Deleted after the searcher was last refreshed; its document goes with the next sync
+                Article article = articles.get(ids.get(i));
+                if (article != null) {
+                    hits.add(toHit(article, topDocs.scoreDocs[i].score, titleHighlighter, contentHighlighter));
+                }
+            }
+            return PageResponse.of(hits, collector.getTotalHits(), size, current);
+        } catch (IOException | InvalidTokenOffsetsException e) {
+            log.error("Article search failed: {}", e.getMessage());
+            throw new BusinessException("Search failed");
+        } finally {
+            if (searcher != null) {
+                try {
+                    searcherManager.release(searcher);
+                } catch (IOException e) {
+                    log.warn("Failed to release searcher: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuild the index from the articles table in the background, streaming rows in id order
+     * @return false if a reindex is already running
+     */
+    public boolean startReindex() {
+        if (!reindexing.compareAndSet(false, true)) {
+            return false;
+        }
+        reindexExecutor.submit(() -> {
+            try {
+                reindex();
+            } catch (Exception e) {
+                log.error("Article reindex failed: {}", e.getMessage());
+            } finally {
+                reindexing.set(false);
+            }
+        });
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${content.search.refresh-interval-ms:1000}")
+    public void refresh() throws IOException {
+        searcherManager.maybeRefresh();
+    }
+
+    @Scheduled(fixedDelayString = "${content.search.commit-interval-ms:60000}")
+    public void commit() throws IOException {
+        if (writer.hasUncommittedChanges()) {
+            writer.commit();
+        }
+    }
+
+    private void reindex() throws IOException {
+        long reindexGeneration = System.currentTimeMillis();
+        generation = reindexGeneration;
+        syncedDuringReindex.clear();
+
+        long lastId = 0;
+        long indexed = 0;
+        while (true) {
+            LambdaQueryWrapper<Article> wrapper = new LambdaQueryWrapper<>();
+            wrapper.gt(Article::getId, lastId)
+                    .orderByAsc(Article::getId)
+                    .last("LIMIT " + reindexChunkSize);
+            List<Article> chunk = articleMapper.selectList(wrapper);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            for (Article article : chunk) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new IOException("Interrupted after indexing " + indexed + " articles");
+                }
+                writer.updateDocument(new Term(FIELD_ID, String.valueOf(article.getId())), toDocument(article));
+            }
+            indexed += chunk.size();
+            lastId = chunk.get(chunk.size() - 1).getId();
+        }
+
+        // Re-sync articles changed or deleted while the scan ran, on the sync thread so no other reload interleaves;
+        // anything synced meanwhile lands in the set again, so this ends once writes stop racing the reindex
+        while (!syncedDuringReindex.isEmpty()) {
+            List<Long> ids = new ArrayList<>(syncedDuringReindex);
+            syncedDuringReindex.removeAll(ids);
+            try {
+                syncExecutor.submit(() -> sync(ids)).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while re-syncing articles changed during reindex", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Failed to re-sync articles changed during reindex", e.getCause());
+            }
+        }
+
+        writer.deleteDocuments(LongPoint.newRangeQuery(FIELD_GENERATION, Long.MIN_VALUE, reindexGeneration - 1));
+        writer.commit();
+        searcherManager.maybeRefresh();
+        log.info("Reindexed {} articles", indexed);
+    }
+
+    private void publish(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        String body = ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+        try {
+            redisTemplate.convertAndSend(CacheInvalidationConfig.SEARCH_CHANNEL, body);
+        } catch (Exception e) {
+            // Other instances miss this change until the next reindex; at least keep this one current
+            log.warn("Failed to publish search index change for {} articles: {}", ids.size(), e.getMessage());
+            syncExecutor.execute(() -> sync(ids));
+        }
+    }
+
+    /**
+     * Reload the articles and index them, or remove their documents if they no longer exist. Runs on the sync
+     * thread only.
+     */
+    private void sync(List<Long> ids) {
+        if (reindexing.get()) {
+            syncedDuringReindex.addAll(ids);
+        }
+        for (int from = 0; from < ids.size(); from += reindexChunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + reindexChunkSize));
+            try {
+                Map<Long, Article> found = loadArticles(chunk);
+                for (Long id : chunk) {
+                    Article article = found.get(id);
+                    if (article != null) {
+                        writer.updateDocument(new Term(FIELD_ID, String.valueOf(id)), toDocument(article));
+                    } else {
+                        writer.deleteDocuments(new Term(FIELD_ID, String.valueOf(id)));
+                    }
+                }
+            } catch (Exception e) {
+                log.error("Failed to sync {} articles into search index: {}", chunk.size(), e.getMessage());
+            }
+        }
+    }
+
+    private Map<Long, Article> loadArticles(List<Long> ids) {
+        Map<Long, Article> found = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += reindexChunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + reindexChunkSize));
+            for (Article article : articleMapper.selectBatchIds(chunk)) {
+                found.put(article.getId(), article);
+            }
+        }
+        return found;
+    }
+
+    private Document toDocument(Article article) {
+        Document doc = new Document();
+        doc.add(new StringField(FIELD_ID, String.valueOf(article.getId()), Field.Store.YES));
+        doc.add(new TextField(FIELD_TITLE, nullToEmpty(article.getTitle()), Field.Store.NO));
+        doc.add(new TextField(FIELD_SUMMARY, nullToEmpty(article.getSummary()), Field.Store.NO));
+        doc.add(new TextField(FIELD_CONTENT, nullToEmpty(article.getContent()), Field.Store.NO));
+        if (article.getStatus() != null) {
+            doc.add(new IntPoint(FIELD_STATUS, article.getStatus()));
+        }
+        if (article.getCategoryId() != null) {
+            doc.add(new LongPoint(FIELD_CATEGORY_ID, article.getCategoryId()));
+        }
+        doc.add(new LongPoint(FIELD_GENERATION, generation));
+        return doc;
+    }
+
+    private ArticleSearchHit toHit(Article article, float score, Highlighter titleHighlighter,
+                                   Highlighter contentHighlighter) throws IOException, InvalidTokenOffsetsException {
+        ArticleSearchHit hit = new ArticleSearchHit();
+        hit.setId(article.getId());
+        hit.setTitle(article.getTitle());
+        hit.setSummary(article.getSummary());
+        hit.setStatus(article.getStatus());
+        hit.setCategoryId(article.getCategoryId());
+        hit.setCreatedAt(article.getCreatedAt());
+        hit.setScore(score);
+        hit.setTitleHighlight(titleHighlighter.getBestFragment(analyzer, FIELD_TITLE, nullToEmpty(article.getTitle())));
+        hit.setContentHighlight(contentHighlighter.getBestFragment(analyzer, FIELD_CONTENT,
+                nullToEmpty(article.getContent())));
+        return hit;
+    }
+
+    private Highlighter highlighter(Query query, String field) {
+        Highlighter highlighter = new Highlighter(new SimpleHTMLFormatter("<em>", "</em>"),
+                new SimpleHTMLEncoder(), new QueryScorer(query, field));
+        highlighter.setTextFragmenter(new SimpleFragmenter(160));
+        return highlighter;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
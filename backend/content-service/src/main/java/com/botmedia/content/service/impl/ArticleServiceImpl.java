@@ -2,45 +2,65 @@ package com.botmedia.content.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.core.metadata.TableFieldInfo;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.botmedia.common.constant.AppConstants;
 import com.botmedia.common.exception.BusinessException;
+import com.botmedia.common.response.CursorPageResponse;
+import com.botmedia.common.response.PageResponse;
 import com.botmedia.content.dto.ArticleCreateRequest;
+import com.botmedia.content.dto.ArticleSearchHit;
 import com.botmedia.content.dto.ArticleUpdateRequest;
 import com.botmedia.content.dto.ArticleVO;
-import com.botmedia.content.dto.TagVO;
 import com.botmedia.content.entity.Article;
-import com.botmedia.content.entity.ArticleTag;
-import com.botmedia.content.entity.Category;
-import com.botmedia.content.entity.Tag;
 import com.botmedia.content.repository.ArticleMapper;
 import com.botmedia.content.repository.ArticleTagMapper;
-import com.botmedia.content.repository.CategoryMapper;
-import com.botmedia.content.repository.TagMapper;
 import com.botmedia.content.service.ArticleService;
-import org.springframework.beans.BeanUtils;
+import com.botmedia.content.service.CategoryService;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.function.Predicate;
 
 @Service
 public class ArticleServiceImpl implements ArticleService {
 
+    // List pages never show the body, so they skip the (LONGTEXT) content column
+    private static final Predicate<TableFieldInfo> LIST_COLUMNS = field -> !"content".equals(field.getColumn());
+
     private final ArticleMapper articleMapper;
-    private final CategoryMapper categoryMapper;
-    private final TagMapper tagMapper;
     private final ArticleTagMapper articleTagMapper;
+    private final ArticleVOAssembler articleVOAssembler;
+    private final ArticleViewCounter articleViewCounter;
+    private final ArticleCache articleCache;
+    private final ArticleSearchIndex articleSearchIndex;
+    private final ArticleBulkImporter articleBulkImporter;
+    private final CategoryService categoryService;
 
-    public ArticleServiceImpl(ArticleMapper articleMapper, CategoryMapper categoryMapper, 
-                             TagMapper tagMapper, ArticleTagMapper articleTagMapper) {
+    public ArticleServiceImpl(ArticleMapper articleMapper, ArticleTagMapper articleTagMapper,
+                             ArticleVOAssembler articleVOAssembler, ArticleViewCounter articleViewCounter,
+                             ArticleCache articleCache, ArticleSearchIndex articleSearchIndex,
+                             ArticleBulkImporter articleBulkImporter, CategoryService categoryService) {
         this.articleMapper = articleMapper;
-        this.categoryMapper = categoryMapper;
-        this.tagMapper = tagMapper;
         this.articleTagMapper = articleTagMapper;
+        this.articleVOAssembler = articleVOAssembler;
+        this.articleViewCounter = articleViewCounter;
+        this.articleCache = articleCache;
+        this.articleSearchIndex = articleSearchIndex;
+        this.articleBulkImporter = articleBulkImporter;
+        this.categoryService = categoryService;
     }
 
     @Override
@@ -63,7 +83,8 @@ public class ArticleServiceImpl implements ArticleService {
             saveTags(article.getId(), request.getTagIds());
         }
 
-        return getArticle(article.getId());
+        articleSearchIndex.indexAfterCommit(article);
+        return withPendingViews(loadArticle(article.getId()));
     }
 
     @Override
@@ -93,36 +114,53 @@ public class ArticleServiceImpl implements ArticleService {
             article.setStatus(request.getStatus());
         }
 
+        // view_count is owned by ArticleViewCounter; don't write back the stale value we read
+        article.setViewCount(null);
+        // Null so the update fill stamps the current time; the value we read would be written back unchanged.
+        // Every update goes through here, tag-only ones included, so updated_at moves with them too.
+        article.setUpdatedAt(null);
         articleMapper.updateById(article);
 
         if (request.getTagIds() != null) {
-            articleTagMapper.deleteByArticleId(id);
-            if (!request.getTagIds().isEmpty()) {
-                saveTags(id, request.getTagIds());
-            }
+            updateTags(id, request.getTagIds());
         }
 
-        return getArticle(id);
+        articleCache.evict(id);
+        articleSearchIndex.indexAfterCommit(article);
+        return withPendingViews(loadArticle(id));
     }
 
     @Override
-    @Transactional
     public ArticleVO getArticle(Long id) {
-        Article article = articleMapper.selectById(id);
-        if (article == null) {
-            throw new BusinessException("Article not found");
+        ArticleVO vo = articleCache.get(id, this::loadArticle);
+        // The cached copy may predate a category rename; the version folds in the live tree, so use its name
+        if (vo.getCategoryId() != null) {
+            String categoryName = categoryService.getCategoryName(vo.getCategoryId());
+            if (categoryName != null) {
+                vo.setCategoryName(categoryName);
+            }
         }
+        articleViewCounter.increment(id);
+        vo.setViewCount(vo.getViewCount() + 1);
+        return vo;
+    }
 
-        article.setViewCount(article.getViewCount() + 1);
-        articleMapper.updateById(article);
+    @Override
+    public String getArticleVersion(Long id) {
+        long articleFingerprint = articleCache.getFingerprint(id, this::loadArticle);
+        return Long.toHexString(articleFingerprint) + "-" + Long.toHexString(categoryService.getTreeFingerprint());
+    }
 
-        return convertToVO(article);
+    @Override
+    public void recordView(Long id) {
+        articleViewCounter.increment(id);
     }
 
     @Override
     public IPage<ArticleVO> listArticles(long current, long size, Integer status, Long categoryId) {
         Page<Article> page = new Page<>(current, size);
         LambdaQueryWrapper<Article> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(Article.class, LIST_COLUMNS);
         
         if (status != null) {
             wrapper.eq(Article::getStatus, status);
@@ -136,14 +174,48 @@ public class ArticleServiceImpl implements ArticleService {
         IPage<Article> articlePage = articleMapper.selectPage(page, wrapper);
         
         IPage<ArticleVO> voPage = new Page<>(articlePage.getCurrent(), articlePage.getSize(), articlePage.getTotal());
-        List<ArticleVO> voList = articlePage.getRecords().stream()
-                .map(this::convertToVO)
-                .collect(Collectors.toList());
+        List<ArticleVO> voList = articleVOAssembler.toVOs(articlePage.getRecords());
+        voList.forEach(this::withPendingViews);
         voPage.setRecords(voList);
 
         return voPage;
     }
 
+    @Override
+    public CursorPageResponse<ArticleVO> listArticlesByCursor(String cursor, long size, Integer status, Long categoryId) {
+        long limit = Math.max(1, Math.min(size, AppConstants.MAX_PAGE_SIZE));
+        LambdaQueryWrapper<Article> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(Article.class, LIST_COLUMNS);
+
+        if (status != null) {
+            wrapper.eq(Article::getStatus, status);
+        }
+        if (categoryId != null) {
+            wrapper.eq(Article::getCategoryId, categoryId);
+        }
+        if (cursor != null && !cursor.isEmpty()) {
+            Article last = decodeCursor(cursor);
+            // Seek past the last row of the previous page: (created_at, id) < (lastCreatedAt, lastId)
+            wrapper.and(w -> w.lt(Article::getCreatedAt, last.getCreatedAt())
+                    .or(o -> o.eq(Article::getCreatedAt, last.getCreatedAt()).lt(Article::getId, last.getId())));
+        }
+
+        wrapper.orderByDesc(Article::getCreatedAt).orderByDesc(Article::getId);
+        // Fetch one extra row to know whether another page exists without a COUNT(*)
+        wrapper.last("LIMIT " + (limit + 1));
+
+        List<Article> articles = articleMapper.selectList(wrapper);
+        String nextCursor = null;
+        if (articles.size() > limit) {
+            articles = articles.subList(0, (int) limit);
+            nextCursor = encodeCursor(articles.get(articles.size() - 1));
+        }
+
+        List<ArticleVO> voList = articleVOAssembler.toVOs(articles);
+        voList.forEach(this::withPendingViews);
+        return CursorPageResponse.of(voList, limit, nextCursor);
+    }
+
     @Override
     @Transactional
     public ArticleVO publishArticle(Long id) {
@@ -154,9 +226,13 @@ public class ArticleServiceImpl implements ArticleService {
 
         article.setStatus(2);
         article.setPublishedAt(LocalDateTime.now());
+        article.setViewCount(null);
+        article.setUpdatedAt(null);
         articleMapper.updateById(article);
 
-        return convertToVO(article);
+        articleCache.evict(id);
+        articleSearchIndex.indexAfterCommit(article);
+        return withPendingViews(loadArticle(id));
     }
 
     @Override
@@ -169,44 +245,89 @@ public class ArticleServiceImpl implements ArticleService {
 
         articleMapper.deleteById(id);
         articleTagMapper.deleteByArticleId(id);
+        articleCache.evict(id);
+        articleSearchIndex.removeAfterCommit(id);
     }
 
-    private void saveTags(Long articleId, List<Long> tagIds) {
-        for (Long tagId : tagIds) {
-            ArticleTag articleTag = new ArticleTag();
-            articleTag.setArticleId(articleId);
-            articleTag.setTagId(tagId);
-            articleTagMapper.insert(articleTag);
+    @Override
+    public PageResponse<ArticleSearchHit> searchArticles(String query, Integer status, Long categoryId,
+                                                         long current, long size) {
+        if (query == null || query.trim().isEmpty()) {
+            throw BusinessException.badRequest("Search query is required");
         }
+        long page = Math.max(1, current);
+        long limit = Math.max(1, Math.min(size, AppConstants.MAX_PAGE_SIZE));
+        return articleSearchIndex.search(query.trim(), status, categoryId, page, limit);
     }
 
-    private ArticleVO convertToVO(Article article) {
-        ArticleVO vo = new ArticleVO();
-        BeanUtils.copyProperties(article, vo);
+    @Override
+    public void reindexArticles() {
+        if (!articleSearchIndex.startReindex()) {
+            throw BusinessException.badRequest("A reindex is already running");
+        }
+    }
 
-        if (article.getCategoryId() != null) {
-            Category category = categoryMapper.selectById(article.getCategoryId());
-            if (category != null) {
-                vo.setCategoryName(category.getName());
-            }
+    @Override
+    public void importArticles(Long authorId, InputStream in, OutputStream out, boolean dryRun, Integer chunkSize)
+            throws IOException {
+        articleBulkImporter.importArticles(authorId, in, out, dryRun, chunkSize);
+    }
+
+    private void saveTags(Long articleId, List<Long> tagIds) {
+        articleTagMapper.insertBatch(articleId, new LinkedHashSet<>(tagIds));
+    }
+
+    /**
+     * Apply only the difference between the stored and requested tag sets
+     */
+    private void updateTags(Long articleId, List<Long> tagIds) {
+        Set<Long> existing = new HashSet<>(articleTagMapper.findTagIdsByArticleId(articleId));
+        Set<Long> requested = new LinkedHashSet<>(tagIds);
+
+        Set<Long> removed = new HashSet<>(existing);
+        removed.removeAll(requested);
+        Set<Long> added = new LinkedHashSet<>(requested);
+        added.removeAll(existing);
+
+        if (!removed.isEmpty()) {
+            articleTagMapper.deleteByArticleIdAndTagIds(articleId, removed);
+        }
+        if (!added.isEmpty()) {
+            articleTagMapper.insertBatch(articleId, added);
         }
+    }
 
-        List<Long> tagIds = articleTagMapper.findTagIdsByArticleId(article.getId());
-        if (!CollectionUtils.isEmpty(tagIds)) {
-            List<TagVO> tags = new ArrayList<>();
-            for (Long tagId : tagIds) {
-                Tag tag = tagMapper.selectById(tagId);
-                if (tag != null) {
-                    TagVO tagVO = new TagVO();
-                    BeanUtils.copyProperties(tag, tagVO);
-                    tags.add(tagVO);
-                }
-            }
-            vo.setTags(tags);
+    private ArticleVO loadArticle(Long id) {
+        Article article = articleMapper.selectById(id);
+        if (article == null) {
+            throw new BusinessException("Article not found");
         }
+        return articleVOAssembler.toVO(article);
+    }
+
+    private String encodeCursor(Article article) {
+        String raw = article.getCreatedAt() + "," + article.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
 
-        vo.setAuthorName("Author-" + article.getAuthorId());
+    private Article decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(',');
+            Article last = new Article();
+            last.setCreatedAt(LocalDateTime.parse(raw.substring(0, separator)));
+            last.setId(Long.parseLong(raw.substring(separator + 1)));
+            return last;
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw BusinessException.badRequest("Invalid cursor");
+        }
+    }
 
+    private ArticleVO withPendingViews(ArticleVO vo) {
+        long pending = articleViewCounter.pendingViews(vo.getId());
+        if (pending > 0) {
+            vo.setViewCount((vo.getViewCount() != null ? vo.getViewCount() : 0L) + pending);
+        }
         return vo;
     }
 }
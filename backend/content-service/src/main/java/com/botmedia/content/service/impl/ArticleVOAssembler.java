@@ -0,0 +1,97 @@
+package com.botmedia.content.service.impl;
+
+import com.botmedia.content.dto.ArticleTagRow;
+import com.botmedia.content.dto.ArticleVO;
+import com.botmedia.content.dto.TagVO;
+import com.botmedia.content.entity.Article;
+import com.botmedia.content.entity.Category;
+import com.botmedia.content.repository.ArticleTagMapper;
+import com.botmedia.content.repository.CategoryMapper;
+import org.springframework.beans.BeanUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds ArticleVOs for a batch of articles with a fixed number of queries:
+ * one IN query for categories and one join query for tags, regardless of page size.
+ */
+@Component
+public class ArticleVOAssembler {
+
+    private final CategoryMapper categoryMapper;
+    private final ArticleTagMapper articleTagMapper;
+
+    public ArticleVOAssembler(CategoryMapper categoryMapper, ArticleTagMapper articleTagMapper) {
+        this.categoryMapper = categoryMapper;
+        this.articleTagMapper = articleTagMapper;
+    }
+
+    public ArticleVO toVO(Article article) {
+        return toVOs(Collections.singletonList(article)).get(0);
+    }
+
+    public List<ArticleVO> toVOs(List<Article> articles) {
+        if (articles.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Set<Long> articleIds = new LinkedHashSet<>();
+        Set<Long> categoryIds = new LinkedHashSet<>();
+        for (Article article : articles) {
+            articleIds.add(article.getId());
+            if (article.getCategoryId() != null) {
+                categoryIds.add(article.getCategoryId());
+            }
+        }
+
+        Map<Long, String> categoryNames = loadCategoryNames(categoryIds);
+        Map<Long, List<TagVO>> tagsByArticle = loadTags(articleIds);
+
+        List<ArticleVO> result = new ArrayList<>(articles.size());
+        for (Article article : articles) {
+            ArticleVO vo = new ArticleVO();
+            BeanUtils.copyProperties(article, vo);
+
+            if (article.getCategoryId() != null) {
+                vo.setCategoryName(categoryNames.get(article.getCategoryId()));
+            }
+            vo.setTags(tagsByArticle.get(article.getId()));
+            vo.setAuthorName("Author-" + article.getAuthorId());
+
+            result.add(vo);
+        }
+        return result;
+    }
+
+    private Map<Long, String> loadCategoryNames(Set<Long> categoryIds) {
+        if (categoryIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<Long, String> names = new HashMap<>();
+        for (Category category : categoryMapper.selectBatchIds(categoryIds)) {
+            names.put(category.getId(), category.getName());
+        }
+        return names;
+    }
+
+    private Map<Long, List<TagVO>> loadTags(Set<Long> articleIds) {
+        Map<Long, List<TagVO>> tagsByArticle = new HashMap<>();
+        for (ArticleTagRow row : articleTagMapper.findTagsByArticleIds(articleIds)) {
+            TagVO tagVO = new TagVO();
+            tagVO.setId(row.getId());
+            tagVO.setName(row.getName());
+            tagVO.setSlug(row.getSlug());
+            tagVO.setCreatedAt(row.getCreatedAt());
+            tagsByArticle.computeIfAbsent(row.getArticleId(), k -> new ArrayList<>()).add(tagVO);
+        }
+        return tagsByArticle;
+    }
+}
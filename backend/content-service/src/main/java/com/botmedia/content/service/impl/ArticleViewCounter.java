@@ -0,0 +1,116 @@
+package com.botmedia.content.service.impl;
+
+import com.botmedia.content.repository.ArticleMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind buffer for article view counts.
+ * Reads only bump an in-memory LongAdder; pending deltas are applied to MySQL
+ * periodically with a single batched UPDATE, and once more on shutdown.
+ * Every instance also adds what it flushed to a shared Redis hash, so cached articles on any instance can
+ * tell how many views were written to MySQL after they were loaded.
+ */
+@Component
+public class ArticleViewCounter {
+
+    private static final Logger log = LoggerFactory.getLogger(ArticleViewCounter.class);
+
+    private static final String FLUSHED_KEY = "content:article:flushed-views";
+
+    private final ArticleMapper articleMapper;
+    private final StringRedisTemplate redisTemplate;
+
+    // Entries are never removed: a flush subtracts what it wrote instead of swapping the adder out,
+    // so increments racing with a flush are never lost. Size is bounded by the number of articles.
+    private final ConcurrentHashMap<Long, LongAdder> pending = new ConcurrentHashMap<>();
+
+    public ArticleViewCounter(ArticleMapper articleMapper, StringRedisTemplate redisTemplate) {
+        this.articleMapper = articleMapper;
+        this.redisTemplate = redisTemplate;
+    }
+
+    public void increment(Long articleId) {
+        pending.computeIfAbsent(articleId, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * Views recorded for an article that have not been written to MySQL yet
+     */
+    public long pendingViews(Long articleId) {
+        LongAdder adder = pending.get(articleId);
+        return adder != null ? adder.sum() : 0L;
+    }
+
+    /**
+     * Views all instances have written to MySQL, as a running total that only grows while the Redis hash
+     * lives; only differences between two readings mean anything. Returns -1 if Redis cannot be read.
+     */
+    public long flushedViews(Long articleId) {
+        try {
+            Object value = redisTemplate.opsForHash().get(FLUSHED_KEY, articleId.toString());
+            return value != null ? Long.parseLong(value.toString()) : 0L;
+        } catch (Exception e) {
+            log.warn("Failed to read flushed views of article {}: {}", articleId, e.getMessage());
+            return -1L;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${content.view-count.flush-interval-ms:1000}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    synchronized void flush() {
+        Map<Long, Long> deltas = new HashMap<>();
+        pending.forEach((articleId, adder) -> {
+            long delta = adder.sum();
+            if (delta > 0) {
+                deltas.put(articleId, delta);
+            }
+        });
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        try {
+            articleMapper.incrementViewCounts(deltas);
+        } catch (Exception e) {
+            // Keep the deltas buffered and retry on the next flush
+            log.error("Failed to flush view counts for {} articles: {}", deltas.size(), e.getMessage());
+            return;
+        }
+
+        deltas.forEach((articleId, delta) -> pending.get(articleId).add(-delta));
+        publishFlushed(deltas);
+    }
+
+    private void publishFlushed(Map<Long, Long> deltas) {
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection redis = (StringRedisConnection) connection;
+                deltas.forEach((articleId, delta) -> redis.hIncrBy(FLUSHED_KEY, articleId.toString(), delta));
+                return null;
+            });
+        } catch (Exception e) {
+            // Cached articles miss these views until they are reloaded from MySQL, which has them
+            log.warn("Failed to publish flushed views for {} articles: {}", deltas.size(), e.getMessage());
+        }
+    }
+}
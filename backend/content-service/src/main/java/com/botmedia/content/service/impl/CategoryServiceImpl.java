@@ -11,17 +11,17 @@ import org.springframework.beans.BeanUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 public class CategoryServiceImpl implements CategoryService {
 
     private final CategoryMapper categoryMapper;
+    private final CategoryTreeCache categoryTreeCache;
 
-    public CategoryServiceImpl(CategoryMapper categoryMapper) {
+    public CategoryServiceImpl(CategoryMapper categoryMapper, CategoryTreeCache categoryTreeCache) {
         this.categoryMapper = categoryMapper;
+        this.categoryTreeCache = categoryTreeCache;
     }
 
     @Override
@@ -35,6 +35,7 @@ public class CategoryServiceImpl implements CategoryService {
         category.setDescription(request.getDescription());
 
         categoryMapper.insert(category);
+        categoryTreeCache.invalidate();
 
         CategoryVO vo = new CategoryVO();
         BeanUtils.copyProperties(category, vo);
@@ -65,7 +66,10 @@ public class CategoryServiceImpl implements CategoryService {
             category.setDescription(request.getDescription());
         }
 
+        // Null so the update fill stamps the current time instead of writing back the value we read
+        category.setUpdatedAt(null);
         categoryMapper.updateById(category);
+        categoryTreeCache.invalidate();
 
         CategoryVO vo = new CategoryVO();
         BeanUtils.copyProperties(category, vo);
@@ -74,22 +78,26 @@ public class CategoryServiceImpl implements CategoryService {
 
     @Override
     public List<CategoryVO> listCategories() {
-        LambdaQueryWrapper<Category> wrapper = new LambdaQueryWrapper<>();
-        wrapper.orderByAsc(Category::getSortOrder);
-        
-        List<Category> allCategories = categoryMapper.selectList(wrapper);
-        
-        // Convert to VO
-        List<CategoryVO> allCategoryVOs = allCategories.stream()
-                .map(cat -> {
-                    CategoryVO vo = new CategoryVO();
-                    BeanUtils.copyProperties(cat, vo);
-                    return vo;
-                })
-                .collect(Collectors.toList());
-
-        // Build tree structure
-        return buildTree(allCategoryVOs, null);
+        return categoryTreeCache.get(this::loadAllCategories).getRoots();
+    }
+
+    @Override
+    public long getTreeFingerprint() {
+        return categoryTreeCache.get(this::loadAllCategories).getFingerprint();
+    }
+
+    @Override
+    public String getCategoryName(Long id) {
+        return categoryTreeCache.get(this::loadAllCategories).getName(id);
+    }
+
+    @Override
+    public List<Long> getDescendantIds(Long id) {
+        CategoryTreeSnapshot tree = categoryTreeCache.get(this::loadAllCategories);
+        if (!tree.contains(id)) {
+            throw new BusinessException("Category not found");
+        }
+        return tree.getDescendantIds(id);
     }
 
     @Override
@@ -110,21 +118,12 @@ public class CategoryServiceImpl implements CategoryService {
         }
 
         categoryMapper.deleteById(id);
+        categoryTreeCache.invalidate();
     }
 
-    private List<CategoryVO> buildTree(List<CategoryVO> categories, Long parentId) {
-        List<CategoryVO> result = new ArrayList<>();
-        
-        for (CategoryVO category : categories) {
-            if ((parentId == null && category.getParentId() == null) 
-                    || (parentId != null && parentId.equals(category.getParentId()))) {
-                
-                List<CategoryVO> children = buildTree(categories, category.getId());
-                category.setChildren(children);
-                result.add(category);
-            }
-        }
-        
-        return result;
+    private List<Category> loadAllCategories() {
+        LambdaQueryWrapper<Category> wrapper = new LambdaQueryWrapper<>();
+        wrapper.orderByAsc(Category::getSortOrder);
+        return categoryMapper.selectList(wrapper);
     }
 }
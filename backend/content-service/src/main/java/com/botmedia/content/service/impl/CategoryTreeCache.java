@@ -0,0 +1,118 @@
+package com.botmedia.content.service.impl;
+
+import com.botmedia.common.util.TransactionUtils;
+import com.botmedia.content.config.CacheInvalidationConfig;
+import com.botmedia.content.entity.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Holds the current category tree snapshot. Readers get the published snapshot without locking;
+ * it is rebuilt only after a category write (here or on another instance) has bumped the version.
+ * Writes reach other instances through pub/sub, and also bump a shared version key in Redis that every instance
+ * polls, so an invalidation lost to a reconnect or failover is picked up within one check interval. Snapshots
+ * are also rebuilt once they reach a maximum age, which bounds staleness while Redis itself is unreachable.
+ */
+@Component
+public class CategoryTreeCache implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(CategoryTreeCache.class);
+
+    private static final String VERSION_KEY = "content:category:version";
+
+    private final StringRedisTemplate redisTemplate;
+    private final long maxAgeMillis;
+    private final AtomicLong version = new AtomicLong(1);
+    private volatile CategoryTreeSnapshot snapshot;
+    private volatile long snapshotBuiltAt;
+
+    // Last value of the shared version key this instance has accounted for
+    private volatile String sharedVersion;
+
+    public CategoryTreeCache(StringRedisTemplate redisTemplate,
+                             @Value("${content.category-cache.max-age-seconds:300}") long maxAgeSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.maxAgeMillis = maxAgeSeconds * 1000;
+    }
+
+    public CategoryTreeSnapshot get(Supplier<List<Category>> loader) {
+        CategoryTreeSnapshot current = snapshot;
+        if (isCurrent(current, version.get())) {
+            return current;
+        }
+        return rebuild(loader);
+    }
+
+    /**
+     * Mark the tree stale on every instance; deferred until commit when called inside a transaction
+     */
+    public void invalidate() {
+        TransactionUtils.afterCommit(this::invalidateNow);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Catch up with writes whose invalidation message this instance missed
+     */
+    @Scheduled(fixedDelayString = "${content.category-cache.version-check-interval-ms:30000}")
+    public void checkSharedVersion() {
+        String shared;
+        try {
+            shared = redisTemplate.opsForValue().get(VERSION_KEY);
+        } catch (Exception e) {
+            log.warn("Failed to read shared category version: {}", e.getMessage());
+            return;
+        }
+        if (shared != null && !shared.equals(sharedVersion)) {
+            sharedVersion = shared;
+            version.incrementAndGet();
+        }
+    }
+
+    private synchronized CategoryTreeSnapshot rebuild(Supplier<List<Category>> loader) {
+        // Read the version before loading so a write committed mid-load leaves this snapshot stale
+        long target = version.get();
+        CategoryTreeSnapshot current = snapshot;
+        if (isCurrent(current, target)) {
+            return current;
+        }
+        long builtAt = System.currentTimeMillis();
+        CategoryTreeSnapshot rebuilt = CategoryTreeSnapshot.build(target, loader.get());
+        snapshotBuiltAt = builtAt;
+        snapshot = rebuilt;
+        return rebuilt;
+    }
+
+    private boolean isCurrent(CategoryTreeSnapshot current, long target) {
+        return current != null && current.getVersion() == target
+                && System.currentTimeMillis() - snapshotBuiltAt < maxAgeMillis;
+    }
+
+    private void invalidateNow() {
+        version.incrementAndGet();
+        try {
+            Long shared = redisTemplate.opsForValue().increment(VERSION_KEY);
+            // If nobody else wrote since the last check, this write needs no catch-up rebuild of its own
+            if (shared != null && String.valueOf(shared - 1).equals(sharedVersion)) {
+                sharedVersion = String.valueOf(shared);
+            }
+            redisTemplate.convertAndSend(CacheInvalidationConfig.CATEGORY_CHANNEL, "1");
+        } catch (Exception e) {
+            log.warn("Failed to publish category invalidation: {}", e.getMessage());
+        }
+    }
+}
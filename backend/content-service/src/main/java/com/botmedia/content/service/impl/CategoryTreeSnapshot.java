@@ -0,0 +1,154 @@
+package com.botmedia.content.service.impl;
+
+import com.botmedia.content.dto.CategoryVO;
+import com.botmedia.content.entity.Category;
+import org.springframework.beans.BeanUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable category tree built in linear time from a flat list.
+ * Nodes are numbered in pre-order; each node also records the last pre-order index of its subtree,
+ * so all descendants of a category are one contiguous slice of the pre-order ID array.
+ */
+public final class CategoryTreeSnapshot {
+
+    private final long version;
+    private final long fingerprint;
+    private final List<CategoryVO> roots;
+    private final long[] preOrderIds;
+    private final Map<Long, int[]> intervals;
+    private final Map<Long, String> names;
+
+    private CategoryTreeSnapshot(long version, long fingerprint, List<CategoryVO> roots, long[] preOrderIds,
+                                 Map<Long, int[]> intervals, Map<Long, String> names) {
+        this.version = version;
+        this.fingerprint = fingerprint;
+        this.roots = roots;
+        this.preOrderIds = preOrderIds;
+        this.intervals = intervals;
+        this.names = names;
+    }
+
+    /**
+     * Build the tree; categories must already be in display (sort_order) order.
+     * Categories whose parent is missing are unreachable from a root and are left out, as before.
+     */
+    public static CategoryTreeSnapshot build(long version, List<Category> categories) {
+        Map<Long, List<Category>> childrenByParent = new HashMap<>();
+        List<Category> rootCategories = new ArrayList<>();
+        long fingerprint = 1125899906842597L;
+        for (Category category : categories) {
+            fingerprint = 31 * fingerprint + Objects.hash(category.getId(), category.getParentId(), category.getName(),
+                    category.getSlug(), category.getSortOrder(), category.getDescription(), category.getUpdatedAt());
+            if (category.getParentId() == null) {
+                rootCategories.add(category);
+            } else {
+                childrenByParent.computeIfAbsent(category.getParentId(), k -> new ArrayList<>()).add(category);
+            }
+        }
+
+        Builder builder = new Builder(categories.size(), childrenByParent);
+        List<CategoryVO> roots = builder.buildLevel(rootCategories);
+        long[] preOrderIds = new long[builder.next];
+        System.arraycopy(builder.preOrderIds, 0, preOrderIds, 0, builder.next);
+        return new CategoryTreeSnapshot(version, fingerprint, roots, preOrderIds,
+                Collections.unmodifiableMap(builder.intervals), Collections.unmodifiableMap(builder.names));
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Hash of the categories the tree was built from. Unlike the version counter, which is local to
+     * each instance, it is the same on every instance and across restarts for the same data.
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    public List<CategoryVO> getRoots() {
+        return roots;
+    }
+
+    /**
+     * Name of a category in the tree, or null
+     */
+    public String getName(Long categoryId) {
+        return names.get(categoryId);
+    }
+
+    public boolean contains(Long categoryId) {
+        return intervals.containsKey(categoryId);
+    }
+
+    /**
+     * IDs of the category and all its descendants, in pre-order; empty if the category is not in the tree
+     */
+    public List<Long> getDescendantIds(Long categoryId) {
+        int[] interval = intervals.get(categoryId);
+        if (interval == null) {
+            return Collections.emptyList();
+        }
+        List<Long> ids = new ArrayList<>(interval[1] - interval[0] + 1);
+        for (int i = interval[0]; i <= interval[1]; i++) {
+            ids.add(preOrderIds[i]);
+        }
+        return ids;
+    }
+
+    /**
+     * Whether {@code descendantId} is {@code ancestorId} or below it, in O(1)
+     */
+    public boolean isDescendant(Long descendantId, Long ancestorId) {
+        int[] ancestor = intervals.get(ancestorId);
+        int[] descendant = intervals.get(descendantId);
+        return ancestor != null && descendant != null
+                && ancestor[0] <= descendant[0] && descendant[0] <= ancestor[1];
+    }
+
+    private static final class Builder {
+
+        private final Map<Long, List<Category>> childrenByParent;
+        private final long[] preOrderIds;
+        private final Map<Long, int[]> intervals;
+        private final Map<Long, String> names;
+        private int next;
+
+        private Builder(int size, Map<Long, List<Category>> childrenByParent) {
+            this.childrenByParent = childrenByParent;
+            this.preOrderIds = new long[size];
+            this.intervals = new HashMap<>(size * 2);
+            this.names = new HashMap<>(size * 2);
+        }
+
+        private List<CategoryVO> buildLevel(List<Category> level) {
+            List<CategoryVO> result = new ArrayList<>(level.size());
+            for (Category category : level) {
+                // Guard against parent cycles: a node is only placed once
+                if (intervals.containsKey(category.getId())) {
+                    continue;
+                }
+                int[] interval = new int[2];
+                interval[0] = next;
+                intervals.put(category.getId(), interval);
+                names.put(category.getId(), category.getName());
+                preOrderIds[next++] = category.getId();
+
+                CategoryVO vo = new CategoryVO();
+                BeanUtils.copyProperties(category, vo);
+                vo.setChildren(buildLevel(childrenByParent.getOrDefault(category.getId(), Collections.emptyList())));
+
+                interval[1] = next - 1;
+                result.add(vo);
+            }
+            return Collections.unmodifiableList(result);
+        }
+    }
+}
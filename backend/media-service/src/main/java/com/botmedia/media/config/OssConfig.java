@@ -3,6 +3,7 @@ package com.botmedia.media.config;
 import com.aliyun.oss.OSS;
 import com.aliyun.oss.OSSClientBuilder;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -11,6 +12,7 @@ import org.springframework.context.annotation.Configuration;
  * Creates and configures OSS client for file storage
  */
 @Configuration
+@ConditionalOnProperty(name = "media.storage.type", havingValue = "oss", matchIfMissing = true)
 public class OssConfig {
 
     @Value("${aliyun.oss.endpoint}")
@@ -0,0 +1,111 @@
+package com.botmedia.media.controller;
+
+import com.botmedia.media.storage.LocalStorageBackend;
+import com.botmedia.media.storage.ObjectStat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Local Object Controller
+ * Serves objects and receives PUTs to presigned URLs when objects are stored by the local storage backend;
+ * with OSS, object URLs point at the bucket and these routes do not exist
+ */
+@RestController
+@RequestMapping("/api/v1/media/objects")
+@ConditionalOnProperty(name = "media.storage.type", havingValue = "local")
+public class LocalObjectController {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalObjectController.class);
+
+    @Autowired
+    private LocalStorageBackend localStorageBackend;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    /**
+     * Serve a stored object by its key
+     * @param request the request whose path after /objects/ is the object key
+     * @param response the response the object is streamed to
+     */
+    @GetMapping("/**")
+    public void getObject(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String key = objectKey(request);
+
+        ObjectStat stat = localStorageBackend.stat(key);
+        if (stat == null) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        response.setContentType(MediaTypeFactory.getMediaType(key)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        response.setContentLengthLong(stat.getSize());
+        response.setHeader(HttpHeaders.ETAG, "\"" + stat.getEtag() + "\"");
+        WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+        localStorageBackend.transferTo(key, out);
+    }
+
+    /**
+     * Store an object through a presigned URL; an object that already exists is never replaced
+     * @param expires expiry of the URL in epoch seconds
+     * @param signature signature of the URL
+     * @param request the request whose path after /objects/ is the object key and whose body is the content
+     * @param response empty response carrying the object's ETag
+     */
+    @PutMapping("/**")
+    public void putObject(
+            @RequestParam long expires,
+            @RequestParam String signature,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+
+        String key = objectKey(request);
+
+        if (!localStorageBackend.verifyPut(key, request.getContentType(), expires, signature)) {
+            response.sendError(HttpStatus.FORBIDDEN.value());
+            return;
+        }
+        long size = request.getContentLengthLong();
+        if (size < 0) {
+            response.sendError(HttpStatus.LENGTH_REQUIRED.value());
+            return;
+        }
+
+        log.info("Storing object {} ({} bytes) through presigned URL", key, size);
+        try (InputStream in = request.getInputStream()) {
+            localStorageBackend.create(key, in, size);
+        } catch (FileAlreadyExistsException e) {
+            response.sendError(HttpStatus.CONFLICT.value());
+            return;
+        }
+        ObjectStat stat = localStorageBackend.stat(key);
+        response.setHeader(HttpHeaders.ETAG, "\"" + stat.getEtag() + "\"");
+        response.setStatus(HttpStatus.OK.value());
+    }
+
+    private String objectKey(HttpServletRequest request) {
+        String pattern = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String path = (String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
+        return pathMatcher.extractPathWithinPattern(pattern, path);
+    }
+}
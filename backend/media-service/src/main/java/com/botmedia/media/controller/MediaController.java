@@ -1,16 +1,29 @@
 package com.botmedia.media.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.botmedia.common.exception.BusinessException;
 import com.botmedia.common.response.ApiResponse;
 import com.botmedia.media.dto.MediaFileVO;
+import com.botmedia.media.dto.ResumableUploadStatus;
+import com.botmedia.media.dto.UploadCompleteRequest;
+import com.botmedia.media.dto.UploadIntentRequest;
+import com.botmedia.media.dto.UploadIntentResponse;
 import com.botmedia.media.dto.UploadResponse;
 import com.botmedia.media.service.MediaService;
+import com.botmedia.media.service.impl.ResumableUploadManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.Valid;
+import java.io.IOException;
+
 /**
  * Media Controller
  * REST API for media file operations
@@ -21,9 +34,15 @@ public class MediaController {
 
     private static final Logger log = LoggerFactory.getLogger(MediaController.class);
 
+    private static final String TUS_RESUMABLE = "Tus-Resumable";
+    private static final String TUS_VERSION = "1.0.0";
+
     @Autowired
     private MediaService mediaService;
 
+    @Autowired
+    private ResumableUploadManager resumableUploadManager;
+
     /**
      * Upload a file
      * @param file the file to upload
@@ -40,6 +59,128 @@ public class MediaController {
         return ApiResponse.success(response);
     }
 
+    /**
+     * Start a resumable upload (tus creation); chunks are then sent with PATCH to the returned Location
+     * @param length total size of the file
+     * @param metadata optional tus metadata; {@code filename} and {@code filetype} are used
+     * @param userId the user ID from header
+     * @return 201 with the upload's Location
+     */
+    @PostMapping("/uploads")
+    public ResponseEntity<ApiResponse<Void>> createResumableUpload(
+            @RequestHeader("Upload-Length") long length,
+            @RequestHeader(value = "Upload-Metadata", required = false) String metadata,
+            @RequestHeader(value = "X-User-Id", required = false) Long userId) {
+
+        log.info("Creating resumable upload: length={}, user: {}", length, userId);
+        try {
+            String id = resumableUploadManager.create(length, metadata, userId);
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .header(TUS_RESUMABLE, TUS_VERSION)
+                    .header(HttpHeaders.LOCATION, "/api/v1/media/uploads/" + id)
+                    .build();
+        } catch (BusinessException e) {
+            return tusError(e);
+        }
+    }
+
+    /**
+     * Offset a resumable upload should continue from
+     * @param id upload ID
+     * @param userId the user ID from header; must be the user who created the upload
+     * @return Upload-Offset and Upload-Length headers
+     */
+    @RequestMapping(value = "/uploads/{id}", method = RequestMethod.HEAD)
+    public ResponseEntity<ApiResponse<Void>> getResumableUploadOffset(
+            @PathVariable String id,
+            @RequestHeader(value = "X-User-Id", required = false) Long userId) {
+        try {
+            ResumableUploadStatus status = resumableUploadManager.status(id, userId);
+            return ResponseEntity.ok()
+                    .header(TUS_RESUMABLE, TUS_VERSION)
+                    .header("Upload-Offset", Long.toString(status.getOffset()))
+                    .header("Upload-Length", Long.toString(status.getLength()))
+                    .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                    .build();
+        } catch (BusinessException e) {
+            return tusError(e);
+        }
+    }
+
+    /**
+     * Append a chunk to a resumable upload at its current offset
+     * @param id upload ID
+     * @param offset offset the chunk starts at, which must equal the upload's current offset
+     * @param userId the user ID from header; must be the user who created the upload
+     * @param request the request whose body is the chunk
+     * @return 204 with the new Upload-Offset, or 200 with the stored file once the last chunk is in
+     */
+    @PatchMapping(value = "/uploads/{id}", consumes = "application/offset+octet-stream")
+    public ResponseEntity<ApiResponse<UploadResponse>> appendResumableUpload(
+            @PathVariable String id,
+            @RequestHeader("Upload-Offset") long offset,
+            @RequestHeader(value = "X-User-Id", required = false) Long userId,
+            HttpServletRequest request) throws IOException {
+
+        try {
+            ResumableUploadStatus status = resumableUploadManager.append(
+                    id, userId, offset, request.getContentLengthLong(), request.getInputStream());
+            ResponseEntity.BodyBuilder response = ResponseEntity.status(
+                            status.getResult() != null ? HttpStatus.OK : HttpStatus.NO_CONTENT)
+                    .header(TUS_RESUMABLE, TUS_VERSION)
+                    .header("Upload-Offset", Long.toString(status.getOffset()));
+            return status.getResult() != null
+                    ? response.body(ApiResponse.success(status.getResult()))
+                    : response.build();
+        } catch (BusinessException e) {
+            return tusError(e);
+        }
+    }
+
+    /**
+     * tus clients act on the HTTP status, so errors are not reported in an ApiResponse with status 200
+     */
+    private static <T> ResponseEntity<ApiResponse<T>> tusError(BusinessException e) {
+        return ResponseEntity.status(e.getCode())
+                .header(TUS_RESUMABLE, TUS_VERSION)
+                .body(ApiResponse.error(e.getCode(), e.getMessage()));
+    }
+
+    /**
+     * Start a direct upload: the client PUTs the file to the returned URL, bypassing this service, then completes
+     * the intent
+     * @param request the file about to be uploaded
+     * @param userId the user ID from header
+     * @return intent ID, object key and presigned upload URL
+     */
+    @PostMapping("/upload-intents")
+    public ApiResponse<UploadIntentResponse> createUploadIntent(
+            @Valid @RequestBody UploadIntentRequest request,
+            @RequestHeader(value = "X-User-Id", required = false) Long userId) {
+
+        log.info("Creating upload intent: {}, size: {}, user: {}", request.getFileName(), request.getFileSize(), userId);
+        UploadIntentResponse response = mediaService.createUploadIntent(request, userId);
+        return ApiResponse.success(response);
+    }
+
+    /**
+     * Complete a direct upload once the PUT has succeeded
+     * @param id upload intent ID
+     * @param request the ETag returned for the PUT
+     * @param userId the user ID from header; must be the user who created the intent
+     * @return upload response
+     */
+    @PostMapping("/upload-intents/{id}/complete")
+    public ApiResponse<UploadResponse> completeUploadIntent(
+            @PathVariable Long id,
+            @Valid @RequestBody UploadCompleteRequest request,
+            @RequestHeader(value = "X-User-Id", required = false) Long userId) {
+
+        log.info("Completing upload intent: {}, user: {}", id, userId);
+        UploadResponse response = mediaService.completeUploadIntent(id, request.getEtag(), userId);
+        return ApiResponse.success(response);
+    }
+
     /**
      * Get file information by ID
      * @param id file ID
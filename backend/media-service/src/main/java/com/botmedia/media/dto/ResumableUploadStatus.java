@@ -0,0 +1,36 @@
+package com.botmedia.media.dto;
+
+/**
+ * Resumable Upload Status DTO
+ * How much of a resumable upload has been received, and the stored file once it is complete
+ */
+public class ResumableUploadStatus {
+
+    private long offset;
+    private long length;
+    private UploadResponse result;
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public void setOffset(long offset) {
+        this.offset = offset;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public void setLength(long length) {
+        this.length = length;
+    }
+
+    public UploadResponse getResult() {
+        return result;
+    }
+
+    public void setResult(UploadResponse result) {
+        this.result = result;
+    }
+}
@@ -0,0 +1,21 @@
+package com.botmedia.media.dto;
+
+import javax.validation.constraints.NotBlank;
+
+/**
+ * Upload Complete Request DTO
+ * The ETag storage returned for the client's PUT
+ */
+public class UploadCompleteRequest {
+
+    @NotBlank(message = "ETag is required")
+    private String etag;
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+}
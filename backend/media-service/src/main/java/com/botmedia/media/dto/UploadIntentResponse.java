@@ -0,0 +1,67 @@
+package com.botmedia.media.dto;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Upload Intent Response DTO
+ * Where to PUT the file; the PUT must carry the same Content-Type the intent was created with, plus uploadHeaders.
+ * The URL can only create the object, not replace it once uploaded.
+ */
+public class UploadIntentResponse {
+
+    private Long id;
+    private String objectKey;
+    private String uploadUrl;
+    private String contentType;
+    private Map<String, String> uploadHeaders;
+    private LocalDateTime expiresAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getObjectKey() {
+        return objectKey;
+    }
+
+    public void setObjectKey(String objectKey) {
+        this.objectKey = objectKey;
+    }
+
+    public String getUploadUrl() {
+        return uploadUrl;
+    }
+
+    public void setUploadUrl(String uploadUrl) {
+        this.uploadUrl = uploadUrl;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public Map<String, String> getUploadHeaders() {
+        return uploadHeaders;
+    }
+
+    public void setUploadHeaders(Map<String, String> uploadHeaders) {
+        this.uploadHeaders = uploadHeaders;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
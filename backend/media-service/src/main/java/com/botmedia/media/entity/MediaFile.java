@@ -46,6 +46,12 @@ public class MediaFile {
      */
     private String cdnUrl;
 
+    /**
+     * Hex SHA-256 of the content, shared with the media_object holding it; null for files stored before
+     * content addressing, which own their object
+     */
+    private String contentHash;
+
     /**
      * User ID who uploaded the file
      */
@@ -112,6 +118,14 @@ public class MediaFile {
         this.cdnUrl = cdnUrl;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
     public Long getUploaderId() {
         return uploaderId;
     }
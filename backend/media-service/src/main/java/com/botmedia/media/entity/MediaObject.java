@@ -0,0 +1,104 @@
+package com.botmedia.media.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+
+import java.time.LocalDateTime;
+
+/**
+ * Media Object Entity
+ * A stored object identified by its content, shared by every media_file row with the same SHA-256 and size
+ */
+@TableName("media_object")
+public class MediaObject {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * Hex SHA-256 of the content
+     */
+    private String contentHash;
+
+    /**
+     * Content size in bytes
+     */
+    private Long fileSize;
+
+    /**
+     * Object path in storage
+     */
+    private String filePath;
+
+    /**
+     * CDN URL for accessing the object
+     */
+    private String cdnUrl;
+
+    /**
+     * Number of media_file rows using this object
+     */
+    private Integer refCount;
+
+    /**
+     * Timestamp when the object was stored
+     */
+    private LocalDateTime createdAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public Long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public void setFilePath(String filePath) {
+        this.filePath = filePath;
+    }
+
+    public String getCdnUrl() {
+        return cdnUrl;
+    }
+
+    public void setCdnUrl(String cdnUrl) {
+        this.cdnUrl = cdnUrl;
+    }
+
+    public Integer getRefCount() {
+        return refCount;
+    }
+
+    public void setRefCount(Integer refCount) {
+        this.refCount = refCount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
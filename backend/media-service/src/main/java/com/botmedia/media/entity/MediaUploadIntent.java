@@ -0,0 +1,117 @@
+package com.botmedia.media.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+
+import java.time.LocalDateTime;
+
+/**
+ * Media Upload Intent Entity
+ * An object key handed out for a direct upload to storage, deleted once the upload completes or is abandoned
+ */
+@TableName("media_upload_intent")
+public class MediaUploadIntent {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * Object path in storage the client uploads to
+     */
+    private String objectKey;
+
+    /**
+     * Original file name from the client
+     */
+    private String originalName;
+
+    /**
+     * Size in bytes the client declared
+     */
+    private Long fileSize;
+
+    /**
+     * MIME type the client declared, which the presigned URL is bound to
+     */
+    private String mimeType;
+
+    /**
+     * User ID who requested the upload
+     */
+    private Long uploaderId;
+
+    /**
+     * When the presigned URL stops working
+     */
+    private LocalDateTime expiresAt;
+
+    /**
+     * Timestamp when the intent was created
+     */
+    private LocalDateTime createdAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getObjectKey() {
+        return objectKey;
+    }
+
+    public void setObjectKey(String objectKey) {
+        this.objectKey = objectKey;
+    }
+
+    public String getOriginalName() {
+        return originalName;
+    }
+
+    public void setOriginalName(String originalName) {
+        this.originalName = originalName;
+    }
+
+    public Long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    public void setMimeType(String mimeType) {
+        this.mimeType = mimeType;
+    }
+
+    public Long getUploaderId() {
+        return uploaderId;
+    }
+
+    public void setUploaderId(Long uploaderId) {
+        this.uploaderId = uploaderId;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
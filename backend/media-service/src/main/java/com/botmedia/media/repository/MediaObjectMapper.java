@@ -0,0 +1,33 @@
+package com.botmedia.media.repository;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.botmedia.media.entity.MediaObject;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * Media Object Mapper
+ * Repository interface for MediaObject entity
+ */
+@Mapper
+public interface MediaObjectMapper extends BaseMapper<MediaObject> {
+
+    MediaObject selectByContent(@Param("contentHash") String contentHash, @Param("fileSize") long fileSize);
+
+    /**
+     * Select with a row lock, for reference count changes that may delete the row
+     */
+    MediaObject lockByContent(@Param("contentHash") String contentHash, @Param("fileSize") long fileSize);
+
+    /**
+     * Add a reference; returns 0 if no object with this content exists
+     */
+    int incrementRefCount(@Param("contentHash") String contentHash, @Param("fileSize") long fileSize);
+
+    int decrementRefCount(@Param("id") Long id);
+
+    /**
+     * Insert with one reference unless an object with the same content already exists; returns rows inserted
+     */
+    int insertIgnore(MediaObject object);
+}
@@ -0,0 +1,13 @@
+package com.botmedia.media.repository;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.botmedia.media.entity.MediaUploadIntent;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * Media Upload Intent Mapper
+ * Repository interface for MediaUploadIntent entity
+ */
+@Mapper
+public interface MediaUploadIntentMapper extends BaseMapper<MediaUploadIntent> {
+}
@@ -2,9 +2,14 @@ package com.botmedia.media.service;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.botmedia.media.dto.MediaFileVO;
+import com.botmedia.media.dto.UploadIntentRequest;
+import com.botmedia.media.dto.UploadIntentResponse;
 import com.botmedia.media.dto.UploadResponse;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.nio.file.Path;
+import java.util.Map;
+
 /**
  * Media Service Interface
  * Handles media file operations
@@ -12,13 +17,50 @@ import org.springframework.web.multipart.MultipartFile;
 public interface MediaService {
 
     /**
-     * Upload a file to OSS and save metadata
+     * Upload a file to OSS and save metadata; content already stored is referenced rather than uploaded again
      * @param file the file to upload
      * @param uploaderId the user ID who uploads the file
      * @return upload response with file info
      */
     UploadResponse upload(MultipartFile file, Long uploaderId);
 
+    /**
+     * Unique key for a new object, keeping the original extension if it is a plain one
+     */
+    String newObjectKey(String originalName);
+
+    /**
+     * Store a fully staged resumable upload and save metadata, as for {@link #upload}; see
+     * {@link com.botmedia.media.storage.StorageBackend#shipStaged}
+     * @param objectKey key the upload has been shipping to
+     * @param file the staged file; it is left in place
+     * @param stagedState the upload's staged state, updated in place and persisted by the caller even on failure
+     * @param originalName original file name from the client
+     * @param contentType MIME type of the file
+     * @param contentHash hex SHA-256 of the content, or null if unknown, in which case it is not deduplicated
+     * @param uploaderId the user ID who uploads the file
+     * @return upload response with file info
+     */
+    UploadResponse storeStaged(String objectKey, Path file, Map<String, String> stagedState, String originalName,
+                               String contentType, String contentHash, Long uploaderId);
+
+    /**
+     * Reserve an object key for a direct upload to storage
+     * @param request the file the client is about to upload
+     * @param uploaderId the user ID who uploads the file
+     * @return the presigned URL to PUT the file to
+     */
+    UploadIntentResponse createUploadIntent(UploadIntentRequest request, Long uploaderId);
+
+    /**
+     * Record a directly uploaded file once its object matches the declared size and the client's ETag
+     * @param intentId upload intent ID
+     * @param etag the ETag storage returned for the upload
+     * @param uploaderId the user ID who uploads the file
+     * @return upload response with file info
+     */
+    UploadResponse completeUploadIntent(Long intentId, String etag, Long uploaderId);
+
     /**
      * Get file information by ID
      * @param id file ID
@@ -27,7 +69,7 @@ public interface MediaService {
     MediaFileVO getFile(Long id);
 
     /**
-     * Delete a file
+     * Delete a file; the stored object is removed with its last reference
      * @param id file ID
      */
     void deleteFile(Long id);
@@ -0,0 +1,68 @@
+package com.botmedia.media.service.impl;
+
+import com.botmedia.media.entity.MediaObject;
+import com.botmedia.media.repository.MediaObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Media Object Registry
+ * Reference counts for content-addressed objects. Every stored object has its own unique path, and a reference
+ * is only ever added through the object's row while it exists, so an object is deleted exactly when its last
+ * reference goes and never while a concurrent upload is reusing it.
+ */
+@Component
+public class MediaObjectRegistry {
+
+    @Autowired
+    private MediaObjectMapper mediaObjectMapper;
+
+    /**
+     * Add a reference to the object with this content
+     * @return the object, or null if no such object is stored
+     */
+    @Transactional
+    public MediaObject acquire(String contentHash, long fileSize) {
+        if (mediaObjectMapper.incrementRefCount(contentHash, fileSize) == 0) {
+            return null;
+        }
+        return mediaObjectMapper.selectByContent(contentHash, fileSize);
+    }
+
+    /**
+     * Register a freshly stored object with one reference. If the same content was registered by a concurrent
+     * upload, a reference to that object is taken instead and returned; the caller then deletes its own copy.
+     */
+    @Transactional
+    public MediaObject register(MediaObject object) {
+        while (true) {
+            if (mediaObjectMapper.insertIgnore(object) == 1) {
+                return object;
+            }
+            if (mediaObjectMapper.incrementRefCount(object.getContentHash(), object.getFileSize()) == 1) {
+                return mediaObjectMapper.selectByContent(object.getContentHash(), object.getFileSize());
+            }
+            // The other object lost its last reference in between; try to insert ours again
+        }
+    }
+
+    /**
+     * Drop a reference
+     * @return the object if that was its last reference, in which case its row is deleted and the caller must
+     * delete the stored object; otherwise null
+     */
+    @Transactional
+    public MediaObject release(String contentHash, long fileSize) {
+        MediaObject object = mediaObjectMapper.lockByContent(contentHash, fileSize);
+        if (object == null) {
+            return null;
+        }
+        if (object.getRefCount() <= 1) {
+            mediaObjectMapper.deleteById(object.getId());
+            return object;
+        }
+        mediaObjectMapper.decrementRefCount(object.getId());
+        return null;
+    }
+}
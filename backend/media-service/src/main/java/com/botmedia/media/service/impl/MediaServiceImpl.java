@@ -1,26 +1,43 @@
 package com.botmedia.media.service.impl;
 
-import com.aliyun.oss.OSS;
-import com.aliyun.oss.model.PutObjectRequest;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.botmedia.common.exception.BusinessException;
 import com.botmedia.media.dto.MediaFileVO;
+import com.botmedia.media.dto.UploadIntentRequest;
+import com.botmedia.media.dto.UploadIntentResponse;
 import com.botmedia.media.dto.UploadResponse;
 import com.botmedia.media.entity.MediaFile;
+import com.botmedia.media.entity.MediaObject;
+import com.botmedia.media.entity.MediaUploadIntent;
 import com.botmedia.media.repository.MediaFileMapper;
+import com.botmedia.media.repository.MediaUploadIntentMapper;
 import com.botmedia.media.service.MediaService;
+import com.botmedia.media.storage.ObjectStat;
+import com.botmedia.media.storage.StorageBackend;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.Map;
 import java.util.UUID;
+import java.util.regex.Pattern;
 
 /**
  * Media Service Implementation
@@ -30,17 +47,30 @@ public class MediaServiceImpl implements MediaService {
 
     private static final Logger log = LoggerFactory.getLogger(MediaServiceImpl.class);
 
+    private static final Pattern EXTENSION = Pattern.compile("\\.[A-Za-z0-9]{1,10}");
+
+    private static final String STAGED_COMMITTED = "committed";
+
     @Autowired
-    private OSS ossClient;
+    private StorageBackend storageBackend;
 
     @Autowired
     private MediaFileMapper mediaFileMapper;
 
-    @Value("${aliyun.oss.bucket-name}")
-    private String bucketName;
+    @Autowired
+    private MediaObjectRegistry mediaObjectRegistry;
+
+    @Autowired
+    private MediaUploadIntentMapper mediaUploadIntentMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${media.upload.intent.expiry-minutes:15}")
+    private long intentExpiryMinutes;
 
-    @Value("${aliyun.oss.endpoint}")
-    private String endpoint;
+    @Value("${media.upload.intent.max-size:5368709120}")
+    private long intentMaxSize;
 
     @Override
     public UploadResponse upload(MultipartFile file, Long uploaderId) {
@@ -48,51 +78,264 @@ public class MediaServiceImpl implements MediaService {
             throw new RuntimeException("File is empty");
         }
 
-        String originalFilename = file.getOriginalFilename();
-        String extension = originalFilename != null && originalFilename.contains(".")
-                ? originalFilename.substring(originalFilename.lastIndexOf("."))
-                : "";
-
-        // Generate unique file name
-        String fileName = UUID.randomUUID().toString() + extension;
-        String filePath = "uploads/" + LocalDateTime.now().getYear() + "/"
-                + LocalDateTime.now().getMonthValue() + "/" + fileName;
-
         try {
-            // Upload to OSS
-            PutObjectRequest putObjectRequest = new PutObjectRequest(
-                    bucketName, filePath, file.getInputStream());
-            ossClient.putObject(putObjectRequest);
-
-            // Generate CDN URL
-            String cdnUrl = "https://" + bucketName + "." + endpoint + "/" + filePath;
-
-            // Save metadata to database
+            // Hash the spooled upload first, so content we already store is never stored again
             MediaFile mediaFile = new MediaFile();
-            mediaFile.setFileName(fileName);
-            mediaFile.setOriginalName(originalFilename);
-            mediaFile.setFilePath(filePath);
+            mediaFile.setOriginalName(file.getOriginalFilename());
             mediaFile.setFileSize(file.getSize());
             mediaFile.setMimeType(file.getContentType());
-            mediaFile.setCdnUrl(cdnUrl);
+            mediaFile.setContentHash(sha256(file));
             mediaFile.setUploaderId(uploaderId);
-            mediaFile.setCreatedAt(LocalDateTime.now());
 
-            mediaFileMapper.insert(mediaFile);
+            return store(mediaFile, filePath -> {
+                try (InputStream in = file.getInputStream()) {
+                    storageBackend.put(filePath, in, file.getSize(), file.getContentType());
+                }
+            });
+        } catch (IOException e) {
+            log.error("Failed to upload file: {}", e.getMessage());
+            throw new RuntimeException("Failed to upload file: " + e.getMessage());
+        }
+    }
 
-            // Build response
-            UploadResponse response = new UploadResponse();
-            response.setId(mediaFile.getId());
-            response.setFileName(fileName);
-            response.setCdnUrl(cdnUrl);
+    @Override
+    public String newObjectKey(String originalName) {
+        return newObjectPath(originalName);
+    }
 
-            log.info("File uploaded successfully: {}", fileName);
-            return response;
+    @Override
+    public UploadResponse storeStaged(String objectKey, Path file, Map<String, String> stagedState,
+                                      String originalName, String contentType, String contentHash, Long uploaderId) {
+        try {
+            MediaFile mediaFile = new MediaFile();
+            mediaFile.setOriginalName(originalName);
+            mediaFile.setFileSize(Files.size(file));
+            mediaFile.setMimeType(contentType);
+            mediaFile.setContentHash(contentHash);
+            mediaFile.setUploaderId(uploaderId);
+
+            return store(mediaFile, objectKey, new ObjectWriter() {
+                @Override
+                public void write(String filePath) throws IOException {
+                    // A retry after the metadata failed to save must not commit the same upload twice
+                    if (!Boolean.parseBoolean(stagedState.get(STAGED_COMMITTED))) {
+                        storageBackend.commitStaged(filePath, file, contentType, stagedState);
+                        stagedState.put(STAGED_COMMITTED, "true");
+                    }
+                }
 
+                @Override
+                public void discard(String filePath) {
+                    storageBackend.discardStaged(filePath, stagedState);
+                }
+            });
         } catch (IOException e) {
-            log.error("Failed to upload file: {}", e.getMessage());
-            throw new RuntimeException("Failed to upload file: " + e.getMessage());
+            log.error("Failed to store file {}: {}", file, e.getMessage());
+            throw new RuntimeException("Failed to store file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Record the file, writing its content to a new object unless an object with the same content hash is already
+     * stored. Files without a hash always get their own object.
+     */
+    private UploadResponse store(MediaFile mediaFile, ObjectWriter writer) throws IOException {
+        return store(mediaFile, null, writer);
+    }
+
+    /**
+     * As above, writing a new object under {@code objectKey} if given
+     */
+    private UploadResponse store(MediaFile mediaFile, String objectKey, ObjectWriter writer) throws IOException {
+        String contentHash = mediaFile.getContentHash();
+        long fileSize = mediaFile.getFileSize();
+
+        MediaObject object = contentHash == null ? null : transactionTemplate.execute(status -> {
+            MediaObject existing = mediaObjectRegistry.acquire(contentHash, fileSize);
+            if (existing != null) {
+                saveMediaFile(mediaFile, existing);
+            }
+            return existing;
+        });
+
+        if (object == null) {
+            String filePath = objectKey != null ? objectKey : newObjectPath(mediaFile.getOriginalName());
+            writer.write(filePath);
+
+            MediaObject stored = new MediaObject();
+            stored.setContentHash(contentHash);
+            stored.setFileSize(fileSize);
+            stored.setFilePath(filePath);
+            stored.setCdnUrl(storageBackend.url(filePath));
+            stored.setCreatedAt(LocalDateTime.now());
+            if (contentHash == null) {
+                saveMediaFile(mediaFile, stored);
+            } else {
+                object = transactionTemplate.execute(status -> {
+                    MediaObject registered = mediaObjectRegistry.register(stored);
+                    saveMediaFile(mediaFile, registered);
+                    return registered;
+                });
+                if (object != stored) {
+                    // A concurrent upload of the same content registered first; ours is redundant
+                    storageBackend.delete(filePath);
+                }
+            }
+        } else {
+            if (objectKey != null) {
+                writer.discard(objectKey);
+            }
+            log.info("Upload matches stored object {}, skipped sending {} bytes", object.getFilePath(), fileSize);
+        }
+
+        // Build response
+        UploadResponse response = new UploadResponse();
+        response.setId(mediaFile.getId());
+        response.setFileName(mediaFile.getFileName());
+        response.setCdnUrl(mediaFile.getCdnUrl());
+
+        log.info("File uploaded successfully: {}", mediaFile.getFileName());
+        return response;
+    }
+
+    @Override
+    public UploadIntentResponse createUploadIntent(UploadIntentRequest request, Long uploaderId) {
+        if (uploaderId == null) {
+            throw BusinessException.unauthorized("X-User-Id is required");
         }
+        if (request.getFileSize() > intentMaxSize) {
+            throw BusinessException.badRequest("File exceeds the maximum upload size of " + intentMaxSize + " bytes");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        MediaUploadIntent intent = new MediaUploadIntent();
+        intent.setObjectKey(newObjectPath(request.getFileName()));
+        intent.setOriginalName(request.getFileName());
+        intent.setFileSize(request.getFileSize());
+        intent.setMimeType(request.getContentType());
+        intent.setUploaderId(uploaderId);
+        intent.setExpiresAt(now.plusMinutes(intentExpiryMinutes));
+        intent.setCreatedAt(now);
+        mediaUploadIntentMapper.insert(intent);
+
+        Date expiration = Date.from(intent.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant());
+        UploadIntentResponse response = new UploadIntentResponse();
+        response.setId(intent.getId());
+        response.setObjectKey(intent.getObjectKey());
+        response.setUploadUrl(storageBackend.presignPut(intent.getObjectKey(), intent.getMimeType(), expiration));
+        response.setContentType(intent.getMimeType());
+        response.setUploadHeaders(storageBackend.presignedPutHeaders());
+        response.setExpiresAt(intent.getExpiresAt());
+
+        log.info("Upload intent {} created for {}", intent.getId(), intent.getObjectKey());
+        return response;
+    }
+
+    @Override
+    public UploadResponse completeUploadIntent(Long intentId, String etag, Long uploaderId) {
+        MediaUploadIntent intent = mediaUploadIntentMapper.selectById(intentId);
+        if (intent == null) {
+            throw BusinessException.notFound("Upload intent not found");
+        }
+        if (uploaderId == null) {
+            throw BusinessException.unauthorized("X-User-Id is required");
+        }
+        if (!uploaderId.equals(intent.getUploaderId())) {
+            throw BusinessException.forbidden("Upload intent belongs to another user");
+        }
+
+        ObjectStat stat;
+        try {
+            stat = storageBackend.stat(intent.getObjectKey());
+        } catch (IOException e) {
+            log.error("Failed to check object {}: {}", intent.getObjectKey(), e.getMessage());
+            throw new RuntimeException("Failed to check upload: " + e.getMessage());
+        }
+        if (stat == null) {
+            throw BusinessException.badRequest("File has not been uploaded");
+        }
+        if (stat.getSize() != intent.getFileSize()) {
+            throw BusinessException.badRequest("Uploaded " + stat.getSize() + " bytes, expected " + intent.getFileSize());
+        }
+        if (!unquote(etag).equalsIgnoreCase(unquote(stat.getEtag()))) {
+            throw BusinessException.badRequest("ETag does not match the uploaded file");
+        }
+
+        // The content never passes through this service, so it is not hashed; the file owns its object outright
+        MediaFile mediaFile = new MediaFile();
+        mediaFile.setFileName(intent.getObjectKey().substring(intent.getObjectKey().lastIndexOf('/') + 1));
+        mediaFile.setOriginalName(intent.getOriginalName());
+        mediaFile.setFilePath(intent.getObjectKey());
+        mediaFile.setFileSize(intent.getFileSize());
+        mediaFile.setMimeType(intent.getMimeType());
+        mediaFile.setCdnUrl(storageBackend.url(intent.getObjectKey()));
+        mediaFile.setUploaderId(intent.getUploaderId());
+        mediaFile.setCreatedAt(LocalDateTime.now());
+        // Deleting the intent claims it, so a repeated completion or the reaper cannot act on it as well
+        Boolean recorded = transactionTemplate.execute(status -> {
+            if (mediaUploadIntentMapper.deleteById(intentId) == 0) {
+                return false;
+            }
+            mediaFileMapper.insert(mediaFile);
+            return true;
+        });
+        if (!Boolean.TRUE.equals(recorded)) {
+            throw BusinessException.notFound("Upload intent not found");
+        }
+
+        UploadResponse response = new UploadResponse();
+        response.setId(mediaFile.getId());
+        response.setFileName(mediaFile.getFileName());
+        response.setCdnUrl(mediaFile.getCdnUrl());
+
+        log.info("Direct upload completed: {}", mediaFile.getFileName());
+        return response;
+    }
+
+    /**
+     * Unique object path for a new upload, keeping the original extension if it is a plain one
+     */
+    private static String newObjectPath(String originalFilename) {
+        String extension = originalFilename != null && originalFilename.contains(".")
+                ? originalFilename.substring(originalFilename.lastIndexOf("."))
+                : "";
+        if (!EXTENSION.matcher(extension).matches()) {
+            extension = "";
+        }
+        LocalDateTime now = LocalDateTime.now();
+        return "uploads/" + now.getYear() + "/" + now.getMonthValue() + "/" + UUID.randomUUID() + extension;
+    }
+
+    private static String unquote(String etag) {
+        return etag.length() >= 2 && etag.startsWith("\"") && etag.endsWith("\"")
+                ? etag.substring(1, etag.length() - 1)
+                : etag;
+    }
+
+    private void saveMediaFile(MediaFile mediaFile, MediaObject object) {
+        String filePath = object.getFilePath();
+        mediaFile.setFileName(filePath.substring(filePath.lastIndexOf('/') + 1));
+        mediaFile.setFilePath(filePath);
+        mediaFile.setCdnUrl(object.getCdnUrl());
+        mediaFile.setCreatedAt(LocalDateTime.now());
+        mediaFileMapper.insert(mediaFile);
+    }
+
+    private static String sha256(MultipartFile file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = file.getInputStream()) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
     }
 
     @Override
@@ -114,18 +357,27 @@ public class MediaServiceImpl implements MediaService {
             throw new RuntimeException("File not found");
         }
 
-        try {
-            // Delete from OSS
-            ossClient.deleteObject(bucketName, mediaFile.getFilePath());
-
-            // Delete from database
+        // Files uploaded before content addressing own their object outright
+        String objectPath = mediaFile.getFilePath();
+        if (mediaFile.getContentHash() != null) {
+            MediaObject released = transactionTemplate.execute(status -> {
+                mediaFileMapper.deleteById(id);
+                return mediaObjectRegistry.release(mediaFile.getContentHash(), mediaFile.getFileSize());
+            });
+            objectPath = released != null ? released.getFilePath() : null;
+        } else {
             mediaFileMapper.deleteById(id);
+        }
 
-            log.info("File deleted successfully: {}", mediaFile.getFileName());
-        } catch (Exception e) {
-            log.error("Failed to delete file: {}", e.getMessage());
-            throw new RuntimeException("Failed to delete file: " + e.getMessage());
+        if (objectPath != null) {
+            try {
+                storageBackend.delete(objectPath);
+            } catch (Exception e) {
+                log.error("Failed to delete object {}: {}", objectPath, e.getMessage());
+                throw new RuntimeException("Failed to delete file: " + e.getMessage());
+            }
         }
+        log.info("File deleted successfully: {}", mediaFile.getFileName());
     }
 
     @Override
@@ -148,4 +400,18 @@ public class MediaServiceImpl implements MediaService {
             return vo;
         });
     }
+
+    /**
+     * Writes the content being stored to the given object path
+     */
+    @FunctionalInterface
+    private interface ObjectWriter {
+        void write(String filePath) throws IOException;
+
+        /**
+         * The content turned out to be stored already, so nothing will be written to {@code filePath}
+         */
+        default void discard(String filePath) {
+        }
+    }
 }
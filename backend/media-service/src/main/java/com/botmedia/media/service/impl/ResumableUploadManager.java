@@ -0,0 +1,511 @@
+package com.botmedia.media.service.impl;
+
+import com.botmedia.common.exception.BusinessException;
+import com.botmedia.media.dto.ResumableUploadStatus;
+import com.botmedia.media.dto.UploadResponse;
+import com.botmedia.media.service.MediaService;
+import com.botmedia.media.storage.StorageBackend;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Resumable Upload Manager
+ * Server side of tus-style resumable uploads. Each upload is staged on local disk as {@code <id>.part}, which
+ * chunks are appended to in place, and {@code <id>.info}, which holds the declared length and metadata; the size
+ * of the part file is the offset the client resumes from. Chunks are streamed to disk through a small buffer, so
+ * no upload is ever held in the heap whatever its size.
+ * <p>
+ * The SHA-256 used for deduplication is computed as chunks arrive rather than by reading the assembled file
+ * again. It lives in memory only, so an upload resumed after a restart is stored without deduplication. Staged
+ * uploads are local to the instance that created them; requests for one upload must reach the same instance.
+ * <p>
+ * The object key is picked when the upload starts, and after every chunk the storage backend may ship what has
+ * arrived ahead of time (OSS sends each whole part as a multipart part), with its progress kept in the info file.
+ * The final chunk then only commits the upload (the tail part and completion for OSS, a hard link for local
+ * storage) instead of sending the whole file, so it finishes well within proxy timeouts and a retried final
+ * chunk does not find the upload still locked.
+ */
+@Component
+public class ResumableUploadManager {
+
+    private static final Logger log = LoggerFactory.getLogger(ResumableUploadManager.class);
+
+    private static final Pattern UPLOAD_ID = Pattern.compile("[0-9a-f]{32}");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String STAGED_PREFIX = "staged.";
+
+    private static final long LOCK_RETRY_MS = 100;
+
+    private static final long SHIP_CHECK_BYTES = 8L * 1024 * 1024;
+
+    @Autowired
+    private MediaService mediaService;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Value("${media.upload.resumable.staging-dir:data/staging}")
+    private String stagingDirectory;
+
+    @Value("${media.upload.resumable.max-size:5368709120}")
+    private long maxSize;
+
+    @Value("${media.upload.resumable.expiry-hours:24}")
+    private long expiryHours;
+
+    @Value("${media.upload.resumable.lock-wait-ms:5000}")
+    private long lockWaitMs;
+
+    private Path stagingDir;
+
+    /**
+     * Running hash of each upload this instance has received every byte of so far
+     */
+    private final Map<String, ContentDigest> digests = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() throws IOException {
+        stagingDir = Files.createDirectories(Paths.get(stagingDirectory).toAbsolutePath());
+    }
+
+    /**
+     * Start an upload
+     * @param length total size the client will send
+     * @param metadata tus Upload-Metadata header: comma-separated {@code key base64(value)} pairs, may be null
+     * @param uploaderId the user ID who uploads the file
+     * @return upload ID
+     */
+    public String create(long length, String metadata, Long uploaderId) {
+        if (uploaderId == null) {
+            throw BusinessException.unauthorized("X-User-Id is required");
+        }
+        if (length <= 0) {
+            throw BusinessException.badRequest("Upload-Length must be positive");
+        }
+        if (length > maxSize) {
+            throw new BusinessException(413, "File exceeds the maximum upload size of " + maxSize + " bytes");
+        }
+        Map<String, String> values = parseMetadata(metadata);
+
+        String id = UUID.randomUUID().toString().replace("-", "");
+        Properties info = new Properties();
+        info.setProperty("length", Long.toString(length));
+        if (values.containsKey("filename")) {
+            info.setProperty("filename", values.get("filename"));
+        }
+        if (values.containsKey("filetype")) {
+            info.setProperty("filetype", values.get("filetype"));
+        }
+        info.setProperty("uploaderId", uploaderId.toString());
+        info.setProperty("objectKey", mediaService.newObjectKey(values.get("filename")));
+        try {
+            Files.createFile(partPath(id));
+            writeInfo(id, info);
+        } catch (IOException e) {
+            log.error("Failed to stage upload {}: {}", id, e.getMessage());
+            throw new RuntimeException("Failed to create upload: " + e.getMessage());
+        }
+        digests.put(id, new ContentDigest());
+        return id;
+    }
+
+    /**
+     * Current offset and length of an upload
+     * @param uploaderId the user asking, who must be the one that created the upload
+     */
+    public ResumableUploadStatus status(String id, Long uploaderId) {
+        Properties info = readInfo(id);
+        checkUploader(info, uploaderId);
+        return status(id, info);
+    }
+
+    private ResumableUploadStatus status(String id, Properties info) {
+        long length = Long.parseLong(info.getProperty("length"));
+        ResumableUploadStatus status = new ResumableUploadStatus();
+        status.setLength(length);
+        if (info.containsKey("fileId")) {
+            status.setOffset(length);
+            status.setResult(result(info));
+            return status;
+        }
+        try {
+            status.setOffset(Files.size(partPath(id)));
+        } catch (IOException e) {
+            throw BusinessException.notFound("Upload not found");
+        }
+        return status;
+    }
+
+    /**
+     * Append a chunk at {@code offset}, which must be the current offset. Whatever part of the chunk arrives
+     * before the client disconnects is kept. The chunk that brings the upload to its full length stores the file.
+     * @param uploaderId the user sending the chunk, who must be the one that created the upload
+     * @param contentLength size of the chunk, or -1 if not known up front
+     * @return the new offset, and the stored file once the upload is complete
+     */
+    public ResumableUploadStatus append(String id, Long uploaderId, long offset, long contentLength,
+                                        InputStream body) throws IOException {
+        Properties info = readInfo(id);
+        checkUploader(info, uploaderId);
+        long length = Long.parseLong(info.getProperty("length"));
+        if (info.containsKey("fileId")) {
+            // The response to the final chunk was lost and the client is retrying it
+            if (offset != length) {
+                throw new BusinessException(409, "Upload is already complete");
+            }
+            return status(id, info);
+        }
+        if (contentLength >= 0 && offset + contentLength > length) {
+            throw BusinessException.badRequest("Chunk extends past Upload-Length");
+        }
+
+        Path part = partPath(id);
+        ResumableUploadStatus status = new ResumableUploadStatus();
+        status.setLength(length);
+        boolean complete = false;
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.WRITE);
+             FileLock lock = lock(channel)) {
+            // Re-read under the lock for the latest staged state
+            info = readInfo(id);
+            if (info.containsKey("fileId")) {
+                // Completed by another request between reading the info and taking the lock
+                throw new BusinessException(409, "Upload is already complete");
+            }
+            String objectKey = info.getProperty("objectKey");
+            if (objectKey == null) {
+                // Staged before object keys were picked up front
+                objectKey = mediaService.newObjectKey(info.getProperty("filename"));
+                info.setProperty("objectKey", objectKey);
+            }
+            Map<String, String> staged = stagedState(info);
+            long position = channel.size();
+            if (offset != position) {
+                throw new BusinessException(409, "Upload-Offset " + offset + " does not match " + position);
+            }
+            ContentDigest digest = digests.get(id);
+            if (digest != null && digest.getHashed() != position) {
+                digests.remove(id);
+                digest = null;
+            }
+
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long shipCheckedAt = position;
+            try {
+                int n;
+                while (position < length
+                        && (n = body.read(buffer, 0, (int) Math.min(buffer.length, length - position))) > 0) {
+                    ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, n);
+                    while (chunk.hasRemaining()) {
+                        position += channel.write(chunk, position);
+                    }
+                    if (digest != null) {
+                        digest.update(buffer, n);
+                    }
+                    if (position - shipCheckedAt >= SHIP_CHECK_BYTES) {
+                        ship(id, objectKey, part, info, staged, position);
+                        shipCheckedAt = position;
+                    }
+                }
+            } catch (IOException e) {
+                log.info("Upload {} interrupted at offset {}: {}", id, position, e.getMessage());
+                throw e;
+            }
+            status.setOffset(position);
+
+            if (position < length) {
+                if (position != shipCheckedAt) {
+                    ship(id, objectKey, part, info, staged, position);
+                }
+            } else {
+                String contentHash = digest != null && digest.getHashed() == length ? digest.hex() : null;
+                UploadResponse response;
+                try {
+                    response = mediaService.storeStaged(objectKey, part, staged, info.getProperty("filename"),
+                            info.getProperty("filetype"), contentHash, uploaderId);
+                } catch (RuntimeException e) {
+                    // The client retries the final chunk; store that attempt without deduplication rather than
+                    // trust a digest that has been through a failed attempt
+                    digests.remove(id);
+                    saveStagedState(id, info, staged);
+                    throw e;
+                }
+                putStagedState(info, staged);
+                info.setProperty("fileId", response.getId().toString());
+                info.setProperty("fileName", response.getFileName());
+                info.setProperty("cdnUrl", response.getCdnUrl());
+                writeInfo(id, info);
+                status.setResult(response);
+                complete = true;
+            }
+        } catch (NoSuchFileException e) {
+            throw BusinessException.notFound("Upload not found");
+        }
+        if (complete) {
+            digests.remove(id);
+            Files.deleteIfExists(part);
+            log.info("Resumable upload {} completed: {} bytes", id, length);
+        }
+        return status;
+    }
+
+    /**
+     * Delete staged uploads, complete or not, that have seen no activity for the expiry period
+     */
+    @Scheduled(fixedDelayString = "${media.upload.resumable.cleanup-interval-ms:3600000}")
+    public void cleanup() {
+        Instant cutoff = Instant.now().minus(Duration.ofHours(expiryHours));
+        int removed = 0;
+        try (DirectoryStream<Path> infos = Files.newDirectoryStream(stagingDir, "*.info")) {
+            for (Path infoFile : infos) {
+                String name = infoFile.getFileName().toString();
+                String id = name.substring(0, name.length() - ".info".length());
+                Path part = partPath(id);
+                Path lastTouched = Files.exists(part) ? part : infoFile;
+                try {
+                    if (Files.getLastModifiedTime(lastTouched).toInstant().isAfter(cutoff)) {
+                        continue;
+                    }
+                    discardStaged(id);
+                    Files.deleteIfExists(part);
+                    Files.deleteIfExists(infoFile);
+                    digests.remove(id);
+                    removed++;
+                } catch (IOException e) {
+                    log.warn("Failed to remove staged upload {}: {}", id, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            log.error("Failed to scan staging directory: {}", e.getMessage());
+        }
+        if (removed > 0) {
+            log.info("Removed {} expired staged uploads", removed);
+        }
+    }
+
+    /**
+     * Let the backend ship what has been staged so far; whatever it does not get to now goes with a later chunk
+     * or the commit
+     */
+    private void ship(String id, String objectKey, Path part, Properties info, Map<String, String> staged,
+                      long position) {
+        try {
+            storageBackend.shipStaged(objectKey, part, info.getProperty("filetype"), staged);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to ship upload {} ahead at offset {}: {}", id, position, e.getMessage());
+        } finally {
+            saveStagedState(id, info, staged);
+        }
+    }
+
+    /**
+     * Drop what an abandoned upload shipped ahead, so no orphaned parts are left in storage
+     */
+    private void discardStaged(String id) {
+        try {
+            Properties info = readInfo(id);
+            if (!info.containsKey("fileId") && info.containsKey("objectKey")) {
+                storageBackend.discardStaged(info.getProperty("objectKey"), stagedState(info));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to discard staged upload {}: {}", id, e.getMessage());
+        }
+    }
+
+    private static Map<String, String> stagedState(Properties info) {
+        Map<String, String> state = new HashMap<>();
+        for (String name : info.stringPropertyNames()) {
+            if (name.startsWith(STAGED_PREFIX)) {
+                state.put(name.substring(STAGED_PREFIX.length()), info.getProperty(name));
+            }
+        }
+        return state;
+    }
+
+    private static void putStagedState(Properties info, Map<String, String> state) {
+        state.forEach((name, value) -> info.setProperty(STAGED_PREFIX + name, value));
+    }
+
+    private void saveStagedState(String id, Properties info, Map<String, String> state) {
+        if (stagedState(info).equals(state)) {
+            return;
+        }
+        putStagedState(info, state);
+        try {
+            writeInfo(id, info);
+        } catch (IOException e) {
+            log.error("Failed to save staged state of upload {}: {}", id, e.getMessage());
+        }
+    }
+
+    private static void checkUploader(Properties info, Long uploaderId) {
+        if (uploaderId == null) {
+            throw BusinessException.unauthorized("X-User-Id is required");
+        }
+        if (!uploaderId.toString().equals(info.getProperty("uploaderId"))) {
+            throw BusinessException.forbidden("Upload belongs to another user");
+        }
+    }
+
+    /**
+     * Lock the upload, waiting up to lock-wait-ms for a request still finishing with it, such as the original of
+     * a chunk the client retried after its proxy gave up
+     */
+    private FileLock lock(FileChannel channel) throws IOException {
+        long deadline = System.currentTimeMillis() + lockWaitMs;
+        while (true) {
+            FileLock lock;
+            try {
+                lock = channel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                lock = null;
+            }
+            if (lock != null) {
+                return lock;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                throw new BusinessException(409, "Another chunk is being written to this upload");
+            }
+            try {
+                Thread.sleep(LOCK_RETRY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted waiting for the upload lock", e);
+            }
+        }
+    }
+
+    private static UploadResponse result(Properties info) {
+        UploadResponse response = new UploadResponse();
+        response.setId(Long.valueOf(info.getProperty("fileId")));
+        response.setFileName(info.getProperty("fileName"));
+        response.setCdnUrl(info.getProperty("cdnUrl"));
+        return response;
+    }
+
+    private static Map<String, String> parseMetadata(String metadata) {
+        Map<String, String> values = new HashMap<>();
+        if (metadata == null || metadata.isBlank()) {
+            return values;
+        }
+        for (String pair : metadata.split(",")) {
+            String[] parts = pair.trim().split(" ", 2);
+            try {
+                values.put(parts[0], parts.length > 1
+                        ? new String(Base64.getDecoder().decode(parts[1].trim()), StandardCharsets.UTF_8)
+                        : "");
+            } catch (IllegalArgumentException e) {
+                throw BusinessException.badRequest("Malformed Upload-Metadata");
+            }
+        }
+        return values;
+    }
+
+    private Path partPath(String id) {
+        return stagingDir.resolve(id + ".part");
+    }
+
+    private Properties readInfo(String id) {
+        if (id == null || !UPLOAD_ID.matcher(id).matches()) {
+            throw BusinessException.notFound("Upload not found");
+        }
+        Properties info = new Properties();
+        try (Reader reader = Files.newBufferedReader(stagingDir.resolve(id + ".info"), StandardCharsets.UTF_8)) {
+            info.load(reader);
+        } catch (NoSuchFileException e) {
+            throw BusinessException.notFound("Upload not found");
+        } catch (IOException e) {
+            log.error("Failed to read staged upload {}: {}", id, e.getMessage());
+            throw new RuntimeException("Failed to read upload: " + e.getMessage());
+        }
+        return info;
+    }
+
+    private void writeInfo(String id, Properties info) throws IOException {
+        Path tmp = Files.createTempFile(stagingDir, id, ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                info.store(writer, null);
+            }
+            Files.move(tmp, stagingDir.resolve(id + ".info"), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * SHA-256 of the bytes received so far
+     */
+    private static class ContentDigest {
+
+        private final MessageDigest digest;
+        private long hashed;
+        private String hex;
+
+        ContentDigest() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        synchronized void update(byte[] buffer, int length) {
+            if (hex != null) {
+                throw new IllegalStateException("Digest already finished");
+            }
+            digest.update(buffer, 0, length);
+            hashed += length;
+        }
+
+        synchronized long getHashed() {
+            return hashed;
+        }
+
+        /**
+         * Finish the digest; {@link MessageDigest#digest()} resets it, so the result is kept for later calls
+         */
+        synchronized String hex() {
+            if (hex == null) {
+                hex = HexFormat.of().formatHex(digest.digest());
+            }
+            return hex;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.botmedia.media.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.botmedia.media.entity.MediaUploadIntent;
+import com.botmedia.media.repository.MediaUploadIntentMapper;
+import com.botmedia.media.storage.StorageBackend;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Upload Intent Reaper
+ * Deletes upload intents that were never completed, along with whatever the client managed to upload, so
+ * abandoned direct uploads do not leave unreferenced objects in storage. Intents are kept for a grace period past
+ * their expiry, since an upload that finished just before the URL expired may still be completed. Each intent is
+ * claimed by deleting its row, the same way completion claims it, so only one of them ever acts on an intent.
+ */
+@Component
+public class UploadIntentReaper {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadIntentReaper.class);
+
+    private static final int BATCH_SIZE = 100;
+
+    @Autowired
+    private MediaUploadIntentMapper mediaUploadIntentMapper;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Value("${media.upload.intent.reap-grace-minutes:60}")
+    private long graceMinutes;
+
+    @Scheduled(fixedDelayString = "${media.upload.intent.reap-interval-ms:300000}")
+    public void reap() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(graceMinutes);
+        int reaped = 0;
+        List<MediaUploadIntent> expired;
+        do {
+            expired = mediaUploadIntentMapper.selectList(new LambdaQueryWrapper<MediaUploadIntent>()
+                    .lt(MediaUploadIntent::getExpiresAt, cutoff)
+                    .orderByAsc(MediaUploadIntent::getExpiresAt)
+                    .last("LIMIT " + BATCH_SIZE));
+            for (MediaUploadIntent intent : expired) {
+                if (mediaUploadIntentMapper.deleteById(intent.getId()) == 0) {
+                    continue;
+                }
+                try {
+                    storageBackend.delete(intent.getObjectKey());
+                    reaped++;
+                } catch (Exception e) {
+                    log.warn("Failed to delete abandoned upload {}: {}", intent.getObjectKey(), e.getMessage());
+                }
+            }
+        } while (expired.size() == BATCH_SIZE);
+        if (reaped > 0) {
+            log.info("Reaped {} abandoned uploads", reaped);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.botmedia.media.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Local Storage Backend
+ * Objects on the local file system, for edge nodes and performance tests. Each key is stored as one file under
+ * two levels of 256 shard directories picked by a hash of the key, so no directory grows past a few thousand
+ * entries however many objects there are. Files are written to a temporary file and moved into place, so readers
+ * never see a partial object, and all copies go through {@link FileChannel#transferFrom}/{@link
+ * FileChannel#transferTo}, which lets the kernel move the bytes without staging them in the heap.
+ * <p>
+ * There is no separate object store to hand presigned URLs to, so presigned PUTs point back at this service and
+ * carry an expiry and an HMAC of the key, expiry and content type; see {@link #verifyPut}. Those PUTs go through
+ * {@link #create}, which never replaces an existing object, so a URL that is still valid after its upload
+ * completed cannot be used to overwrite it.
+ */
+@Component
+@ConditionalOnProperty(name = "media.storage.type", havingValue = "local")
+public class LocalStorageBackend implements StorageBackend {
+
+    private static final int MIN_SIGNING_KEY_LENGTH = 32;
+
+    @Value("${media.storage.local.root:data/media}")
+    private String root;
+
+    @Value("${media.storage.local.base-url:/api/v1/media/objects/}")
+    private String baseUrl;
+
+    @Value("${media.storage.local.signing-key:}")
+    private String signingKey;
+
+    private Path rootDir;
+
+    @PostConstruct
+    public void init() throws IOException {
+        // Anyone who knows the key can mint upload URLs, so there is deliberately no built-in fallback
+        if (signingKey == null || signingKey.length() < MIN_SIGNING_KEY_LENGTH) {
+            throw new IllegalStateException("media.storage.local.signing-key must be set to at least "
+                    + MIN_SIGNING_KEY_LENGTH + " characters when media.storage.type is local");
+        }
+        rootDir = Files.createDirectories(Paths.get(root).toAbsolutePath());
+    }
+
+    @Override
+    public void put(String key, InputStream in, long size, String contentType) throws IOException {
+        write(key, in, size, false);
+    }
+
+    /**
+     * Like {@link #put(String, InputStream, long, String)}, but only if no object exists under the key yet
+     * @throws FileAlreadyExistsException if it does, including when another PUT for the key finishes first
+     */
+    public void create(String key, InputStream in, long size) throws IOException {
+        if (Files.exists(resolve(key))) {
+            throw new FileAlreadyExistsException(key);
+        }
+        write(key, in, size, true);
+    }
+
+    private void write(String key, InputStream in, long size, boolean createOnly) throws IOException {
+        Path target = resolve(key);
+        Path tmp = createTemp(target);
+        try (ReadableByteChannel source = Channels.newChannel(in);
+             FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            long position = 0;
+            while (position < size) {
+                long n = out.transferFrom(source, position, size - position);
+                if (n <= 0) {
+                    throw new IOException("Stream ended after " + position + " of " + size + " bytes");
+                }
+                position += n;
+            }
+            if (createOnly) {
+                // A rename would silently replace a file that appeared meanwhile; a link fails instead
+                Files.createLink(target, tmp);
+            } else {
+                moveIntoPlace(tmp, target);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public void put(String key, Path file, String contentType) throws IOException {
+        Path target = resolve(key);
+        Path tmp = createTemp(target);
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+            moveIntoPlace(tmp, target);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * The staged file is hard-linked into place rather than copied, which is as quick and atomic as a rename but
+     * leaves the staged file where it is, so a retry after a failure later on finds it unchanged. Only when the
+     * staging directory is on another file system is the file copied.
+     */
+    @Override
+    public void commitStaged(String key, Path file, String contentType, Map<String, String> state)
+            throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        try {
+            Files.createLink(target, file);
+        } catch (FileAlreadyExistsException e) {
+            throw e;
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            put(key, file, contentType);
+        }
+    }
+
+    /**
+     * The entity tag is derived from the modification time and size rather than the content, so computing it
+     * never reads the file; every put moves a new file into place and so changes the tag.
+     */
+    @Override
+    public ObjectStat stat(String key) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(resolve(key), BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        String etag = Long.toHexString(attributes.lastModifiedTime().to(TimeUnit.MICROSECONDS)) + "-"
+                + Long.toHexString(attributes.size());
+        return new ObjectStat(attributes.size(), etag);
+    }
+
+    @Override
+    public long transferTo(String key, WritableByteChannel target) throws IOException {
+        try (FileChannel in = FileChannel.open(resolve(key), StandardOpenOption.READ)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, target);
+            }
+            return size;
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    @Override
+    public String url(String key) {
+        return baseUrl + key;
+    }
+
+    @Override
+    public String presignPut(String key, String contentType, Date expiration) {
+        long expires = expiration.getTime() / 1000;
+        return url(key) + "?expires=" + expires + "&signature=" + sign(key, contentType, expires);
+    }
+
+    /**
+     * Check the expiry and signature a PUT to a presigned URL carries
+     */
+    public boolean verifyPut(String key, String contentType, long expires, String signature) {
+        if (signature == null || expires < System.currentTimeMillis() / 1000) {
+            return false;
+        }
+        return MessageDigest.isEqual(sign(key, contentType, expires).getBytes(StandardCharsets.US_ASCII),
+                signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private String sign(String key, String contentType, long expires) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(signingKey.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            String payload = key + "\n" + expires + "\n" + (contentType != null ? contentType : "");
+            return HexFormat.of().formatHex(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * {@code <root>/<h0>/<h1>/<encoded key>}, where h0 and h1 are the low two bytes of the key's CRC-32. The key
+     * is URL-encoded into a single file name, which also keeps it from escaping the shard directory.
+     */
+    private Path resolve(String key) {
+        if (key == null || key.isEmpty() || key.equals(".") || key.equals("..")) {
+            throw new IllegalArgumentException("Invalid storage key: " + key);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(key.getBytes(StandardCharsets.UTF_8));
+        long hash = crc.getValue();
+        return rootDir.resolve(String.format("%02x", hash & 0xff))
+                .resolve(String.format("%02x", (hash >>> 8) & 0xff))
+                .resolve(URLEncoder.encode(key, StandardCharsets.UTF_8));
+    }
+
+    private static Path createTemp(Path target) throws IOException {
+        Path dir = Files.createDirectories(target.getParent());
+        return Files.createTempFile(dir, ".put-", ".tmp");
+    }
+
+    private static void moveIntoPlace(Path tmp, Path target) throws IOException {
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
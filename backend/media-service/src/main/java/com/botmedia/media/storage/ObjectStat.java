@@ -0,0 +1,27 @@
+package com.botmedia.media.storage;
+
+/**
+ * Object Stat
+ * Size and entity tag of a stored object
+ */
+public class ObjectStat {
+
+    private final long size;
+    private final String etag;
+
+    public ObjectStat(long size, String etag) {
+        this.size = size;
+        this.etag = etag;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Entity tag without surrounding quotes, as returned to the client that stored the object
+     */
+    public String getEtag() {
+        return etag;
+    }
+}
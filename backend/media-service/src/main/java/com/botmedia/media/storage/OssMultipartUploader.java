@@ -0,0 +1,305 @@
+package com.botmedia.media.storage;
+
+import com.aliyun.oss.OSS;
+import com.aliyun.oss.model.AbortMultipartUploadRequest;
+import com.aliyun.oss.model.CompleteMultipartUploadRequest;
+import com.aliyun.oss.model.InitiateMultipartUploadRequest;
+import com.aliyun.oss.model.ObjectMetadata;
+import com.aliyun.oss.model.PartETag;
+import com.aliyun.oss.model.UploadPartRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * OSS Multipart Uploader
+ * Uploads large objects as OSS multipart uploads with parts sent in parallel on a shared, fixed-size pool.
+ * The source stream is read sequentially into part buffers; a global semaphore caps the buffers in flight across
+ * all uploads, so heap use stays at most {@code max-buffered-parts} x {@code part-size} however many uploads run.
+ * Each part is retried on its own, and any part that still fails aborts the upload so no orphaned parts are billed.
+ * <p>
+ * Uploads whose content arrives over several requests drive the steps themselves: {@link #initiate}, then
+ * {@link #uploadParts} for each stretch of a local file as it fills up, and {@link #complete} or {@link #abort}.
+ */
+@Component
+@ConditionalOnProperty(name = "media.storage.type", havingValue = "oss", matchIfMissing = true)
+public class OssMultipartUploader {
+
+    private static final Logger log = LoggerFactory.getLogger(OssMultipartUploader.class);
+
+    @Autowired
+    private OSS ossClient;
+
+    @Value("${media.upload.multipart.part-size:8388608}")
+    private int partSize;
+
+    @Value("${media.upload.multipart.parallelism:4}")
+    private int parallelism;
+
+    @Value("${media.upload.multipart.max-buffered-parts:8}")
+    private int maxBufferedParts;
+
+    @Value("${media.upload.multipart.part-retries:3}")
+    private int partRetries;
+
+    private ExecutorService executor;
+    private Semaphore buffers;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threads = new AtomicInteger();
+        executor = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "oss-multipart-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        buffers = new Semaphore(Math.max(maxBufferedParts, 1));
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Upload {@code size} bytes from {@code in} to {@code key}
+     * @return the ETag of the completed object
+     */
+    public String upload(String bucket, String key, InputStream in, long size, String contentType) throws IOException {
+        String uploadId = initiate(bucket, key, contentType);
+        long start = System.currentTimeMillis();
+
+        List<CompletableFuture<PartETag>> parts = new ArrayList<>();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        try {
+            long remaining = size;
+            for (int partNumber = 1; remaining > 0; partNumber++) {
+                int length = (int) Math.min(partSize, remaining);
+                buffers.acquire();
+                byte[] buffer;
+                try {
+                    buffer = readFully(in, length);
+                } catch (IOException e) {
+                    buffers.release();
+                    throw e;
+                }
+                remaining -= length;
+
+                int number = partNumber;
+                parts.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        if (failure.get() != null) {
+                            throw new IllegalStateException("Upload already failed");
+                        }
+                        return uploadPart(bucket, key, uploadId, number, buffer);
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                        throw e;
+                    } finally {
+                        buffers.release();
+                    }
+                }, executor));
+
+                // Stop reading as soon as any part has failed for good
+                if (failure.get() != null) {
+                    throw failure.get();
+                }
+            }
+
+            List<PartETag> etags = new ArrayList<>(parts.size());
+            for (CompletableFuture<PartETag> part : parts) {
+                etags.add(part.join());
+            }
+            String etag = complete(bucket, key, uploadId, etags);
+            long elapsed = Math.max(1, System.currentTimeMillis() - start);
+            log.info("Multipart upload of {} ({} bytes, {} parts) took {} ms, {} MiB/s", key, size, etags.size(), elapsed,
+                    size * 1000 / elapsed >> 20);
+            return etag;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort(bucket, key, uploadId, parts);
+            throw new IOException("Interrupted during multipart upload", e);
+        } catch (IOException | RuntimeException e) {
+            abort(bucket, key, uploadId, parts);
+            if (e instanceof CompletionException && e.getCause() != null) {
+                throw new IOException("Multipart upload failed: " + e.getCause().getMessage(), e.getCause());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Start a multipart upload to {@code key}
+     * @return the upload ID
+     */
+    public String initiate(String bucket, String key, String contentType) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        if (contentType != null) {
+            metadata.setContentType(contentType);
+        }
+        return ossClient.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucket, key, metadata)).getUploadId();
+    }
+
+    /**
+     * Upload {@code length} bytes of {@code file} from {@code position} as consecutive parts of part-size bytes
+     * (the last may be shorter), numbered from {@code firstPartNumber}, in parallel. A part that fails for good
+     * fails the call but leaves the upload open, so the same range can be sent again.
+     * @return the parts' ETags in order
+     */
+    public List<PartETag> uploadParts(String bucket, String key, String uploadId, Path file, long position,
+                                      long length, int firstPartNumber) throws IOException {
+        List<CompletableFuture<PartETag>> parts = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long offset = 0;
+            for (int number = firstPartNumber; offset < length; number++) {
+                int size = (int) Math.min(partSize, length - offset);
+                buffers.acquire();
+                byte[] buffer;
+                try {
+                    buffer = readFully(channel, position + offset, size);
+                } catch (IOException e) {
+                    buffers.release();
+                    throw e;
+                }
+                offset += size;
+
+                int partNumber = number;
+                parts.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return uploadPart(bucket, key, uploadId, partNumber, buffer);
+                    } finally {
+                        buffers.release();
+                    }
+                }, executor));
+            }
+            List<PartETag> etags = new ArrayList<>(parts.size());
+            for (CompletableFuture<PartETag> part : parts) {
+                etags.add(part.join());
+            }
+            return etags;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            awaitAll(parts);
+            throw new IOException("Interrupted during multipart upload", e);
+        } catch (CompletionException e) {
+            awaitAll(parts);
+            throw new IOException("Multipart upload failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (IOException e) {
+            awaitAll(parts);
+            throw e;
+        }
+    }
+
+    /**
+     * Assemble the object from its parts
+     * @return the ETag of the completed object
+     */
+    public String complete(String bucket, String key, String uploadId, List<PartETag> etags) {
+        List<PartETag> sorted = new ArrayList<>(etags);
+        sorted.sort(Comparator.comparingInt(PartETag::getPartNumber));
+        return ossClient.completeMultipartUpload(new CompleteMultipartUploadRequest(bucket, key, uploadId, sorted)).getETag();
+    }
+
+    /**
+     * Drop an upload and the parts sent for it
+     */
+    public void abort(String bucket, String key, String uploadId) {
+        try {
+            ossClient.abortMultipartUpload(new AbortMultipartUploadRequest(bucket, key, uploadId));
+            log.warn("Aborted multipart upload of {}", key);
+        } catch (RuntimeException e) {
+            log.error("Failed to abort multipart upload {} of {}: {}", uploadId, key, e.getMessage());
+        }
+    }
+
+    public int getPartSize() {
+        return partSize;
+    }
+
+    private PartETag uploadPart(String bucket, String key, String uploadId, int partNumber, byte[] buffer) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                UploadPartRequest request = new UploadPartRequest(bucket, key, uploadId, partNumber,
+                        new ByteArrayInputStream(buffer), buffer.length);
+                return ossClient.uploadPart(request).getPartETag();
+            } catch (RuntimeException e) {
+                if (attempt > partRetries) {
+                    throw e;
+                }
+                log.warn("Part {} of {} failed (attempt {}), retrying: {}", partNumber, key, attempt, e.getMessage());
+                try {
+                    Thread.sleep(200L << Math.min(attempt, 5));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait for parts already in flight so none lands after the abort, then drop the upload
+     */
+    private void abort(String bucket, String key, String uploadId, List<CompletableFuture<PartETag>> parts) {
+        awaitAll(parts);
+        abort(bucket, key, uploadId);
+    }
+
+    private static void awaitAll(List<CompletableFuture<PartETag>> parts) {
+        for (CompletableFuture<PartETag> part : parts) {
+            try {
+                part.join();
+            } catch (RuntimeException ignored) {
+                // Already failed; the caller deals with the upload as a whole
+            }
+        }
+    }
+
+    private static byte[] readFully(InputStream in, int length) throws IOException {
+        byte[] buffer = new byte[length];
+        int read = 0;
+        while (read < length) {
+            int n = in.read(buffer, read, length - read);
+            if (n < 0) {
+                throw new IOException("Upload stream ended after " + read + " of " + length + " part bytes");
+            }
+            read += n;
+        }
+        return buffer;
+    }
+
+    private static byte[] readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("File ended after " + buffer.position() + " of " + length + " part bytes");
+            }
+        }
+        return buffer.array();
+    }
+}
@@ -0,0 +1,188 @@
+package com.botmedia.media.storage;
+
+import com.aliyun.oss.HttpMethod;
+import com.aliyun.oss.OSS;
+import com.aliyun.oss.model.GeneratePresignedUrlRequest;
+import com.aliyun.oss.model.OSSObject;
+import com.aliyun.oss.model.ObjectMetadata;
+import com.aliyun.oss.model.PartETag;
+import com.aliyun.oss.model.PutObjectRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * OSS Storage Backend
+ * Objects in an Aliyun OSS bucket, keyed by their path. Objects at or above the multipart threshold are uploaded
+ * as parallel multipart uploads. Presigned PUTs are signed with x-oss-forbid-overwrite, so a URL that is
+ * still valid after its upload completed cannot be used to replace the object.
+ * <p>
+ * Staged uploads become a multipart upload as soon as a whole part has arrived, with each part sent while the
+ * client is still sending the rest, so committing only sends the tail and completes the upload. The upload ID,
+ * the bytes shipped and the part ETags are kept in the staged state.
+ */
+@Component
+@ConditionalOnProperty(name = "media.storage.type", havingValue = "oss", matchIfMissing = true)
+public class OssStorageBackend implements StorageBackend {
+
+    private static final String FORBID_OVERWRITE = "x-oss-forbid-overwrite";
+
+    private static final String UPLOAD_ID = "uploadId";
+    private static final String SHIPPED = "shipped";
+    private static final String PARTS = "parts";
+
+    @Autowired
+    private OSS ossClient;
+
+    @Autowired
+    private OssMultipartUploader ossMultipartUploader;
+
+    @Value("${aliyun.oss.bucket-name}")
+    private String bucketName;
+
+    @Value("${aliyun.oss.endpoint}")
+    private String endpoint;
+
+    @Value("${media.upload.multipart.threshold:33554432}")
+    private long multipartThreshold;
+
+    @Override
+    public void put(String key, InputStream in, long size, String contentType) throws IOException {
+        if (size >= multipartThreshold) {
+            ossMultipartUploader.upload(bucketName, key, in, size, contentType);
+            return;
+        }
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(size);
+        if (contentType != null) {
+            metadata.setContentType(contentType);
+        }
+        ossClient.putObject(new PutObjectRequest(bucketName, key, in, metadata));
+    }
+
+    @Override
+    public void put(String key, Path file, String contentType) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            put(key, in, Files.size(file), contentType);
+        }
+    }
+
+    @Override
+    public void shipStaged(String key, Path file, String contentType, Map<String, String> state) throws IOException {
+        long shipped = Long.parseLong(state.getOrDefault(SHIPPED, "0"));
+        long partSize = ossMultipartUploader.getPartSize();
+        long whole = (Files.size(file) - shipped) / partSize * partSize;
+        if (whole > 0) {
+            ship(key, file, contentType, state, shipped, whole);
+        }
+    }
+
+    @Override
+    public void commitStaged(String key, Path file, String contentType, Map<String, String> state)
+            throws IOException {
+        if (!state.containsKey(UPLOAD_ID)) {
+            put(key, file, contentType);
+            return;
+        }
+        long shipped = Long.parseLong(state.get(SHIPPED));
+        long tail = Files.size(file) - shipped;
+        if (tail > 0) {
+            ship(key, file, contentType, state, shipped, tail);
+        }
+        ossMultipartUploader.complete(bucketName, key, state.get(UPLOAD_ID), parts(state));
+    }
+
+    @Override
+    public void discardStaged(String key, Map<String, String> state) {
+        if (state.containsKey(UPLOAD_ID)) {
+            ossMultipartUploader.abort(bucketName, key, state.get(UPLOAD_ID));
+        }
+    }
+
+    private void ship(String key, Path file, String contentType, Map<String, String> state, long position,
+                      long length) throws IOException {
+        if (!state.containsKey(UPLOAD_ID)) {
+            state.put(UPLOAD_ID, ossMultipartUploader.initiate(bucketName, key, contentType));
+        }
+        List<PartETag> parts = parts(state);
+        parts.addAll(ossMultipartUploader.uploadParts(bucketName, key, state.get(UPLOAD_ID), file, position, length,
+                parts.size() + 1));
+        StringBuilder encoded = new StringBuilder();
+        for (PartETag part : parts) {
+            if (encoded.length() > 0) {
+                encoded.append(',');
+            }
+            encoded.append(part.getPartNumber()).append(':').append(part.getETag());
+        }
+        state.put(PARTS, encoded.toString());
+        state.put(SHIPPED, Long.toString(position + length));
+    }
+
+    private static List<PartETag> parts(Map<String, String> state) {
+        List<PartETag> parts = new ArrayList<>();
+        String encoded = state.get(PARTS);
+        if (encoded == null || encoded.isEmpty()) {
+            return parts;
+        }
+        for (String part : encoded.split(",")) {
+            int colon = part.indexOf(':');
+            parts.add(new PartETag(Integer.parseInt(part.substring(0, colon)), part.substring(colon + 1)));
+        }
+        return parts;
+    }
+
+    @Override
+    public ObjectStat stat(String key) {
+        if (!ossClient.doesObjectExist(bucketName, key)) {
+            return null;
+        }
+        ObjectMetadata metadata = ossClient.getObjectMetadata(bucketName, key);
+        return new ObjectStat(metadata.getContentLength(), metadata.getETag());
+    }
+
+    @Override
+    public long transferTo(String key, WritableByteChannel target) throws IOException {
+        try (OSSObject object = ossClient.getObject(bucketName, key);
+             InputStream in = object.getObjectContent()) {
+            return in.transferTo(Channels.newOutputStream(target));
+        }
+    }
+
+    @Override
+    public void delete(String key) {
+        ossClient.deleteObject(bucketName, key);
+    }
+
+    @Override
+    public String url(String key) {
+        return "https://" + bucketName + "." + endpoint + "/" + key;
+    }
+
+    @Override
+    public String presignPut(String key, String contentType, Date expiration) {
+        GeneratePresignedUrlRequest request = new GeneratePresignedUrlRequest(bucketName, key, HttpMethod.PUT);
+        request.setExpiration(expiration);
+        if (contentType != null) {
+            request.setContentType(contentType);
+        }
+        request.setHeaders(presignedPutHeaders());
+        return ossClient.generatePresignedUrl(request).toString();
+    }
+
+    @Override
+    public Map<String, String> presignedPutHeaders() {
+        return Map.of(FORBID_OVERWRITE, "true");
+    }
+}
@@ -0,0 +1,83 @@
+package com.botmedia.media.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Storage Backend
+ * Where media objects live. Keys are slash-separated paths such as {@code uploads/2024/5/<uuid>.png}; how they
+ * map onto the underlying store is up to the implementation. The active backend is chosen with
+ * {@code media.storage.type} ({@code oss} or {@code local}).
+ */
+public interface StorageBackend {
+
+    /**
+     * Store {@code size} bytes read from {@code in} under {@code key}, replacing any existing object
+     */
+    void put(String key, InputStream in, long size, String contentType) throws IOException;
+
+    /**
+     * Store the contents of a local file under {@code key}, replacing any existing object
+     */
+    void put(String key, Path file, String contentType) throws IOException;
+
+    /**
+     * Send ahead what has arrived so far of an object whose content comes in order over several requests and is
+     * appended to {@code file} as it does. Backends that can take content piecemeal ship any complete parts now,
+     * so that {@link #commitStaged} has little left to do. Progress is kept in {@code state}, which the caller
+     * persists with the upload and passes back on every call, also after a failure.
+     */
+    default void shipStaged(String key, Path file, String contentType, Map<String, String> state) throws IOException {
+    }
+
+    /**
+     * Store the fully staged {@code file} under {@code key}, finishing whatever {@link #shipStaged} started.
+     * The file is left in place for the caller to delete.
+     */
+    void commitStaged(String key, Path file, String contentType, Map<String, String> state) throws IOException;
+
+    /**
+     * Drop whatever {@link #shipStaged} sent for an upload that will not be committed
+     */
+    default void discardStaged(String key, Map<String, String> state) {
+    }
+
+    /**
+     * Size and entity tag of the object, or null if it does not exist
+     */
+    ObjectStat stat(String key) throws IOException;
+
+    /**
+     * Write the whole object to {@code target}
+     * @return bytes written
+     */
+    long transferTo(String key, WritableByteChannel target) throws IOException;
+
+    /**
+     * Remove the object; missing objects are ignored
+     */
+    void delete(String key) throws IOException;
+
+    /**
+     * Public URL the object is served from
+     */
+    String url(String key);
+
+    /**
+     * URL a client can PUT the object's content to directly, without authenticating, until {@code expiration}.
+     * If {@code contentType} is given the client must send the same Content-Type header, along with
+     * {@link #presignedPutHeaders()}. The URL only creates the object: once it exists, further PUTs fail.
+     */
+    String presignPut(String key, String contentType, Date expiration);
+
+    /**
+     * Headers, besides Content-Type, that a PUT to a presigned URL must carry
+     */
+    default Map<String, String> presignedPutHeaders() {
+        return Map.of();
+    }
+}
@@ -94,6 +94,8 @@ CREATE TABLE IF NOT EXISTS articles (
     INDEX idx_status (status),
     INDEX idx_published_at (published_at),
     INDEX idx_is_featured (is_featured),
+    INDEX idx_created_at_id (created_at, id),
+    INDEX idx_status_created_at_id (status, created_at, id),
     FOREIGN KEY (category_id) REFERENCES categories(id) ON DELETE SET NULL
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
@@ -214,11 +216,35 @@ CREATE TABLE IF NOT EXISTS media_files (
     file_size BIGINT NOT NULL DEFAULT 0,
     mime_type VARCHAR(100),
     cdn_url VARCHAR(500),
+    content_hash CHAR(64),
     uploader_id BIGINT,
     created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
     INDEX idx_uploader_id (uploader_id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+CREATE TABLE IF NOT EXISTS media_object (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    content_hash CHAR(64) NOT NULL,
+    file_size BIGINT NOT NULL,
+    file_path VARCHAR(500) NOT NULL,
+    cdn_url VARCHAR(500),
+    ref_count INT NOT NULL DEFAULT 0,
+    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_content (content_hash, file_size)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS media_upload_intent (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    object_key VARCHAR(500) NOT NULL,
+    original_name VARCHAR(255),
+    file_size BIGINT NOT NULL,
+    mime_type VARCHAR(100),
+    uploader_id BIGINT,
+    expires_at DATETIME NOT NULL,
+    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_expires_at (expires_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
 -- =============================================
 -- Analytics Service Database
 -- =============================================
@@ -245,3 +271,15 @@ CREATE TABLE IF NOT EXISTS daily_statistics (
     created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
     INDEX idx_stat_date (stat_date)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS article_daily_views (
+    stat_date DATE NOT NULL,
+    article_id BIGINT NOT NULL,
+    views BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (stat_date, article_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS rollup_watermark (
+    name VARCHAR(50) PRIMARY KEY,
+    watermark DATETIME NOT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
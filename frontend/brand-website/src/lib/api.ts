@@ -16,6 +16,18 @@ export const getArticles = async (page: number = 1, size: number = 10, categoryI
   return response.data;
 };
 
+export const getArticlesByCursor = async (cursor?: string, size: number = 10, categoryId?: number) => {
+  const params: any = { size };
+  if (cursor) {
+    params.cursor = cursor;
+  }
+  if (categoryId !== undefined) {
+    params.categoryId = categoryId;
+  }
+  const response = await apiClient.get('/api/v1/articles/cursor', { params });
+  return response.data;
+};
+
 export const getArticle = async (id: number) => {
   const response = await apiClient.get(`/api/v1/articles/${id}`);
   return response.data;
@@ -75,3 +75,10 @@ export interface PageResponse<T> {
   last: boolean;
   first: boolean;
 }
+
+export interface CursorPage<T> {
+  records: T[];
+  size: number;
+  nextCursor?: string;
+  hasMore: boolean;
+}